@@ -2,15 +2,31 @@ package com.pies.appointment.controller;
 
 import com.pies.appointment.model.Appointment;
 import com.pies.appointment.payload.AppointmentCreateRequest;
+import com.pies.appointment.payload.AppointmentSeriesRequest;
+import com.pies.appointment.payload.AppointmentSeriesResponse;
+import com.pies.appointment.payload.TherapistAvailability;
+import com.pies.appointment.service.AppointmentCalendarService;
+import com.pies.appointment.service.AppointmentSeriesService;
 import com.pies.appointment.service.AppointmentService;
+import com.pies.appointment.service.AvailabilityService;
+import com.pies.appointment.service.ICalFeedService;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -21,6 +37,10 @@ import java.util.List;
 public class AppointmentController {
 
     private final AppointmentService svc;
+    private final AppointmentSeriesService seriesSvc;
+    private final AvailabilityService availabilitySvc;
+    private final AppointmentCalendarService calendarSvc;
+    private final ICalFeedService icalSvc;
 
     public record SimpleResponse(String message) {
     }
@@ -33,6 +53,57 @@ public class AppointmentController {
                 .body(new SimpleResponse("Appointment created successfully"));
     }
 
+    /**
+     * Books a weekly or biweekly series in one request; 409 lists every conflicting occurrence.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @PostMapping("/series")
+    public ResponseEntity<AppointmentSeriesResponse> createSeries(@RequestBody AppointmentSeriesRequest req) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(seriesSvc.create(req));
+    }
+
+    /**
+     * Cancels the remaining occurrences of a series (from now, or from {@code from}).
+     */
+    @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
+    @DeleteMapping("/series/{seriesId}")
+    public ResponseEntity<SimpleResponse> cancelSeries(@PathVariable Long seriesId,
+                                                       @RequestParam(required = false) String from) {
+        int cancelled = seriesSvc.cancel(seriesId, from == null ? null : LocalDateTime.parse(from));
+        return ResponseEntity.ok(new SimpleResponse(cancelled + " appointments cancelled"));
+    }
+
+    /**
+     * Free windows of at least {@code durationMinutes} in {@code [from, to)} per active
+     * therapist, optionally limited to {@code therapistIds}.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping("/availability")
+    public List<TherapistAvailability> availability(@RequestParam String from,
+                                                    @RequestParam String to,
+                                                    @RequestParam(defaultValue = "60") int durationMinutes,
+                                                    @RequestParam(required = false) List<Long> therapistIds) {
+        return availabilitySvc.find(LocalDateTime.parse(from), LocalDateTime.parse(to), durationMinutes, therapistIds);
+    }
+
+    /**
+     * Day or week view of one therapist's or one patient's appointments with both
+     * display names, streamed as a JSON array ordered by start.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping("/calendar")
+    public void calendar(@RequestParam String from,
+                         @RequestParam String to,
+                         @RequestParam(required = false) Long therapistId,
+                         @RequestParam(required = false) Long patientId,
+                         HttpServletResponse response) throws IOException {
+        LocalDateTime start = LocalDateTime.parse(from);
+        LocalDateTime end = LocalDateTime.parse(to);
+        calendarSvc.check(therapistId, patientId, start, end);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        calendarSvc.write(therapistId, patientId, start, end, response.getOutputStream());
+    }
+
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping("/therapist/{therapistId}")
     public List<Appointment> listByTherapist(@PathVariable Long therapistId,
@@ -41,6 +112,53 @@ public class AppointmentController {
         return svc.listByTherapist(therapistId, LocalDateTime.parse(from), LocalDateTime.parse(to));
     }
 
+    /**
+     * Where calendar apps subscribe to a therapist's feed.
+     */
+    public record CalendarFeedLink(String url) {
+    }
+
+    /**
+     * Issues a new calendar feed URL for the therapist; any previous URL stops working.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @PostMapping("/therapist/{therapistId}/calendar-feed")
+    public CalendarFeedLink issueCalendarFeed(@PathVariable Long therapistId) {
+        String secret = icalSvc.issueSecret(therapistId);
+        return new CalendarFeedLink(ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/appointments/feed/{secret}/calendar.ics")
+                .buildAndExpand(secret)
+                .toUriString());
+    }
+
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @DeleteMapping("/therapist/{therapistId}/calendar-feed")
+    public ResponseEntity<Void> revokeCalendarFeed(@PathVariable Long therapistId) {
+        icalSvc.revokeSecret(therapistId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * iCalendar feed of a therapist's active bookings for calendar apps, which
+     * cannot send a JWT: the secret in the path is the only credential, and an
+     * unknown or revoked one is a 404. Honours {@code If-None-Match}, so unchanged
+     * calendars cost a 304.
+     */
+    @GetMapping(value = "/feed/{secret}/calendar.ics", produces = "text/calendar")
+    public ResponseEntity<StreamingResponseBody> icalFeed(@PathVariable String secret, WebRequest request) {
+        Long therapistId = icalSvc.therapistFor(secret)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown calendar feed"));
+        String etag = icalSvc.etag(therapistId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(new MediaType("text", "calendar", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"therapist-" + therapistId + ".ics\"")
+                .body(out -> icalSvc.write(therapistId, out));
+    }
+
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping("/patient/{patientId}")
     public List<Appointment> listByPatient(@PathVariable Long patientId,
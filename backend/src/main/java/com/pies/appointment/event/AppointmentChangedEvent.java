@@ -0,0 +1,17 @@
+package com.pies.appointment.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@code AppointmentService} when a booking is created or cancelled.
+ * Listeners that keep derived state (indexes, caches, notifications) should use
+ * {@code @TransactionalEventListener} so they only see committed changes.
+ */
+public record AppointmentChangedEvent(Type type, Long appointmentId, Long therapistId, Long patientId,
+                                      LocalDateTime start, LocalDateTime end) {
+
+    public enum Type {
+        CREATED,
+        CANCELLED
+    }
+}
@@ -0,0 +1,172 @@
+package com.pies.appointment.index;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory calendars of active appointments: one {@link IntervalTree} per
+ * therapist and one per patient.
+ * <p>
+ * Loaded when the application is ready with every booking that ends after
+ * {@code now - appointment.index.lookback}, then kept current from committed
+ * {@link AppointmentChangedEvent}s. Overlap checks for a start before that
+ * horizon, or made while loading, return empty and the caller queries the
+ * database instead. The horizon moves forward daily and older bookings are dropped.
+ * <p>
+ * The trees only see bookings made on this node, so with
+ * {@code appointment.booking.cluster=true} overlap checks always go to the database.
+ */
+@Component
+public class AppointmentIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentIndex.class);
+
+    private record Booking(Long therapistId, Long patientId, long start, long end) {
+    }
+
+    private final AppointmentRepository repo;
+    private final Duration lookback;
+    private final boolean cluster;
+    private final Map<Long, IntervalTree> byTherapist = new ConcurrentHashMap<>();
+    private final Map<Long, IntervalTree> byPatient = new ConcurrentHashMap<>();
+    private final Map<Long, Booking> bookings = new ConcurrentHashMap<>();
+    private final List<AppointmentChangedEvent> pending = new ArrayList<>();
+    private volatile LocalDateTime horizon;
+    private volatile boolean ready;
+
+    public AppointmentIndex(AppointmentRepository repo,
+                            @Value("${appointment.index.lookback:30d}") Duration lookback,
+                            @Value("${appointment.booking.cluster:false}") boolean cluster) {
+        this.repo = repo;
+        this.lookback = lookback;
+        this.cluster = cluster;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        LocalDateTime from = LocalDateTime.now().minus(lookback);
+        for (Object[] row : repo.findActiveIntervalsEndingAfter(from)) {
+            add((Long) row[0], (Long) row[1], (Long) row[2], (LocalDateTime) row[3], (LocalDateTime) row[4]);
+        }
+        synchronized (pending) {
+            // Changes committed while loading are replayed on top of the snapshot
+            pending.forEach(this::apply);
+            pending.clear();
+            horizon = from;
+            ready = true;
+        }
+        logger.info("Appointment index loaded: {} bookings since {} in {} ms",
+                bookings.size(), from, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Drops bookings that ended before the lookback window. The horizon is moved
+     * first so no check relies on a booking while it is being removed.
+     */
+    @Scheduled(cron = "${appointment.index.prune-cron:0 15 3 * * *}")
+    public void prune() {
+        if (!ready) return;
+        LocalDateTime from = LocalDateTime.now().minus(lookback);
+        horizon = from;
+        long cutoff = toEpoch(from);
+        int removed = 0;
+        for (Map.Entry<Long, Booking> e : bookings.entrySet()) {
+            if (e.getValue().end() <= cutoff) {
+                remove(e.getKey());
+                removed++;
+            }
+        }
+        logger.info("Appointment index pruned {} bookings that ended before {}", removed, from);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        if (!ready) {
+            synchronized (pending) {
+                if (!ready) {
+                    pending.add(e);
+                    return;
+                }
+            }
+        }
+        apply(e);
+    }
+
+    /**
+     * Whether the therapist has an active booking overlapping {@code [start, end)};
+     * empty if the index cannot answer for this range.
+     */
+    public Optional<Boolean> therapistOverlap(Long therapistId, LocalDateTime start, LocalDateTime end) {
+        return overlap(byTherapist, therapistId, start, end);
+    }
+
+    /**
+     * Whether the patient has an active booking overlapping {@code [start, end)};
+     * empty if the index cannot answer for this range.
+     */
+    public Optional<Boolean> patientOverlap(Long patientId, LocalDateTime start, LocalDateTime end) {
+        return overlap(byPatient, patientId, start, end);
+    }
+
+    /**
+     * Whether {@code [start, ...)} lies inside the indexed horizon.
+     */
+    public boolean covers(LocalDateTime start) {
+        LocalDateTime h = horizon;
+        return ready && h != null && !start.isBefore(h);
+    }
+
+    public static long toEpoch(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromEpoch(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private Optional<Boolean> overlap(Map<Long, IntervalTree> trees, Long key, LocalDateTime start, LocalDateTime end) {
+        if (cluster || !covers(start)) return Optional.empty();
+        IntervalTree tree = trees.get(key);
+        return Optional.of(tree != null && tree.overlaps(toEpoch(start), toEpoch(end)));
+    }
+
+    private void apply(AppointmentChangedEvent e) {
+        switch (e.type()) {
+            case CREATED -> add(e.appointmentId(), e.therapistId(), e.patientId(), e.start(), e.end());
+            case CANCELLED -> remove(e.appointmentId());
+        }
+    }
+
+    private void add(Long id, Long therapistId, Long patientId, LocalDateTime start, LocalDateTime end) {
+        Booking b = new Booking(therapistId, patientId, toEpoch(start), toEpoch(end));
+        if (bookings.putIfAbsent(id, b) != null) return;
+        byTherapist.computeIfAbsent(therapistId, k -> new IntervalTree()).insert(id, b.start(), b.end());
+        byPatient.computeIfAbsent(patientId, k -> new IntervalTree()).insert(id, b.start(), b.end());
+    }
+
+    private void remove(Long id) {
+        Booking b = bookings.remove(id);
+        if (b == null) return;
+        IntervalTree t = byTherapist.get(b.therapistId());
+        if (t != null) t.remove(id, b.start());
+        IntervalTree p = byPatient.get(b.patientId());
+        if (p != null) p.remove(id, b.start());
+    }
+}
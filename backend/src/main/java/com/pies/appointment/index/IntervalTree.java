@@ -0,0 +1,190 @@
+package com.pies.appointment.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Balanced (AVL) interval tree of half-open {@code [start, end)} intervals keyed
+ * by (start, id). Every node also stores the largest end in its subtree, so
+ * subtrees that end before the query or start after it are skipped and an
+ * overlap lookup costs O(log n + k) for k matches.
+ * <p>
+ * Times are plain longs (epoch seconds in practice). Methods are synchronized;
+ * one tree holds the bookings of one therapist or one patient, so contention is
+ * limited to that calendar.
+ */
+public class IntervalTree {
+
+    /**
+     * One stored interval.
+     */
+    public record Interval(long id, long start, long end) {
+    }
+
+    private static final class Node {
+        final long id;
+        final long start;
+        final long end;
+        long maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(long id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void insert(long id, long start, long end) {
+        root = insert(root, new Node(id, start, end));
+    }
+
+    /**
+     * Removes the interval with this id and start; returns false if absent.
+     */
+    public synchronized boolean remove(long id, long start) {
+        int before = size;
+        root = remove(root, id, start);
+        return size < before;
+    }
+
+    /**
+     * Whether any stored interval overlaps {@code [start, end)}.
+     */
+    public synchronized boolean overlaps(long start, long end) {
+        return overlaps(start, end, -1);
+    }
+
+    /**
+     * Whether any stored interval other than {@code ignoreId} overlaps {@code [start, end)}.
+     */
+    public synchronized boolean overlaps(long start, long end, long ignoreId) {
+        return anyOverlap(root, start, end, ignoreId);
+    }
+
+    /**
+     * Stored intervals overlapping {@code [start, end)}, ordered by start.
+     */
+    public synchronized List<Interval> overlapping(long start, long end) {
+        List<Interval> out = new ArrayList<>();
+        collect(root, start, end, out);
+        return out;
+    }
+
+    private static boolean anyOverlap(Node n, long start, long end, long ignoreId) {
+        if (n == null || n.maxEnd <= start) return false;
+        if (n.start < end && n.end > start && n.id != ignoreId) return true;
+        if (anyOverlap(n.left, start, end, ignoreId)) return true;
+        // Everything on the right starts at or after this node
+        return n.start < end && anyOverlap(n.right, start, end, ignoreId);
+    }
+
+    private static void collect(Node n, long start, long end, List<Interval> out) {
+        if (n == null || n.maxEnd <= start) return;
+        collect(n.left, start, end, out);
+        if (n.start < end && n.end > start) out.add(new Interval(n.id, n.start, n.end));
+        if (n.start < end) collect(n.right, start, end, out);
+    }
+
+    private static int compare(long startA, long idA, long startB, long idB) {
+        int c = Long.compare(startA, startB);
+        return c != 0 ? c : Long.compare(idA, idB);
+    }
+
+    private Node insert(Node n, Node added) {
+        if (n == null) {
+            size++;
+            return added;
+        }
+        int c = compare(added.start, added.id, n.start, n.id);
+        if (c < 0) {
+            n.left = insert(n.left, added);
+        } else if (c > 0) {
+            n.right = insert(n.right, added);
+        } else {
+            return n;
+        }
+        return balance(n);
+    }
+
+    private Node remove(Node n, long id, long start) {
+        if (n == null) return null;
+        int c = compare(start, id, n.start, n.id);
+        if (c < 0) {
+            n.left = remove(n.left, id, start);
+        } else if (c > 0) {
+            n.right = remove(n.right, id, start);
+        } else {
+            size--;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            Node successor = n.right;
+            while (successor.left != null) successor = successor.left;
+            Node replacement = new Node(successor.id, successor.start, successor.end);
+            replacement.right = removeMin(n.right);
+            replacement.left = n.left;
+            return balance(replacement);
+        }
+        return balance(n);
+    }
+
+    private Node removeMin(Node n) {
+        if (n.left == null) return n.right;
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        long max = n.end;
+        if (n.left != null && n.left.maxEnd > max) max = n.left.maxEnd;
+        if (n.right != null && n.right.maxEnd > max) max = n.right.maxEnd;
+        n.maxEnd = max;
+    }
+
+    private static Node balance(Node n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
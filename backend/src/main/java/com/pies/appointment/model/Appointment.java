@@ -40,9 +40,34 @@ public class Appointment {
     @Max(480)
     private Integer durationMinutes = 60;
 
+    /**
+     * Start plus duration, kept in sync on every save
+     */
+    @Column(name = "end_time", nullable = false)
+    private LocalDateTime endTime;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
+    /**
+     * Set when the appointment belongs to a recurring series
+     */
+    @Column(name = "series_id")
+    private Long seriesId;
+
     @Column(name = "active_status", nullable = false)
     private boolean activeStatus = true;
+
+    // Also bumped by the bulk cancel in AppointmentRepository
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    void computeEndTime() {
+        if (appointmentTime != null) {
+            endTime = appointmentTime.plusMinutes(durationMinutes == null ? 60 : durationMinutes);
+        }
+    }
 }
\ No newline at end of file
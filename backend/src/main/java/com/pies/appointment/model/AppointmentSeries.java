@@ -0,0 +1,50 @@
+package com.pies.appointment.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A recurring booking: {@code occurrences} appointments starting at
+ * {@code firstStart}, every {@code intervalWeeks} weeks.
+ */
+@Entity
+@Table(name = "appointment_series")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AppointmentSeries {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
+
+    @Column(name = "therapist_id", nullable = false)
+    private Long therapistId;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "first_start", nullable = false)
+    private LocalDateTime firstStart;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private Integer durationMinutes;
+
+    @Column(name = "interval_weeks", nullable = false)
+    private Integer intervalWeeks;
+
+    @Column(name = "occurrences", nullable = false)
+    private Integer occurrences;
+
+    @Column(columnDefinition = "TEXT")
+    private String notes;
+
+    @Column(name = "active_status", nullable = false)
+    private boolean activeStatus = true;
+}
@@ -0,0 +1,35 @@
+package com.pies.appointment.payload;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Recurring booking, RRULE-style: {@code frequency} WEEKLY or BIWEEKLY, ending
+ * after {@code count} occurrences or on {@code until} (inclusive); exactly one of
+ * the two must be given.
+ */
+public record AppointmentSeriesRequest(
+        Long therapistId,
+        Long patientId,
+        LocalDateTime firstAppointmentTime,
+        Integer durationMinutes,
+        Frequency frequency,
+        Integer count,
+        LocalDate until,
+        String notes
+) {
+    public enum Frequency {
+        WEEKLY(1),
+        BIWEEKLY(2);
+
+        private final int weeks;
+
+        Frequency(int weeks) {
+            this.weeks = weeks;
+        }
+
+        public int weeks() {
+            return weeks;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.pies.appointment.payload;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Created series and the start times of its occurrences.
+ */
+public record AppointmentSeriesResponse(Long seriesId, List<LocalDateTime> occurrences) {
+}
@@ -0,0 +1,15 @@
+package com.pies.appointment.payload;
+
+import java.time.LocalDateTime;
+
+/**
+ * One appointment on a calendar with the therapist's and patient's display names.
+ */
+public record CalendarEntry(Long id,
+                            LocalDateTime start,
+                            LocalDateTime end,
+                            Long therapistId,
+                            String therapistName,
+                            Long patientId,
+                            String patientName) {
+}
@@ -0,0 +1,9 @@
+package com.pies.appointment.payload;
+
+import java.util.List;
+
+/**
+ * Free windows of one therapist that are long enough for the requested duration.
+ */
+public record TherapistAvailability(Long therapistId, String name, List<TimeSlot> slots) {
+}
@@ -0,0 +1,9 @@
+package com.pies.appointment.payload;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open free window {@code [start, end)}.
+ */
+public record TimeSlot(LocalDateTime start, LocalDateTime end) {
+}
@@ -0,0 +1,48 @@
+package com.pies.appointment.reminder;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes due reminders to the {@code appointment_reminders} outbox for a delivery
+ * worker (email, SMS) to pick up and mark sent. The unique key on appointment and
+ * offset turns repeats into no-ops. Unsent rows of a cancelled appointment are
+ * deleted, so the worker never delivers them and a rebooking can write new ones.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxReminderSender implements ReminderSender {
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO appointment_reminders "
+            + "(appointment_id, therapist_id, patient_id, appointment_time, offset_minutes, due_at, created_at) "
+            + "VALUES (?,?,?,?,?,?,?)";
+
+    private static final String WITHDRAW_SQL =
+            "DELETE FROM appointment_reminders WHERE appointment_id = ? AND sent_at IS NULL";
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void send(List<Reminder> reminders) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbc.batchUpdate(INSERT_SQL, reminders, reminders.size(), (ps, r) -> {
+            ps.setLong(1, r.appointmentId());
+            ps.setLong(2, r.therapistId());
+            ps.setLong(3, r.patientId());
+            ps.setTimestamp(4, Timestamp.valueOf(r.appointmentTime()));
+            ps.setInt(5, r.offsetMinutes());
+            ps.setTimestamp(6, Timestamp.valueOf(r.dueAt()));
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    @Override
+    public void withdraw(Long appointmentId) {
+        jdbc.update(WITHDRAW_SQL, appointmentId);
+    }
+}
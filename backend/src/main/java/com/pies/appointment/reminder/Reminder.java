@@ -0,0 +1,26 @@
+package com.pies.appointment.reminder;
+
+import java.time.LocalDateTime;
+
+/**
+ * One reminder for an appointment, {@code offsetMinutes} before it starts.
+ * Identity is the appointment id and offset only, so a cancellation can rebuild
+ * the keys it needs to drop.
+ */
+public record Reminder(Long appointmentId, Long therapistId, Long patientId,
+                       LocalDateTime appointmentTime, int offsetMinutes) {
+
+    public LocalDateTime dueAt() {
+        return appointmentTime.minusMinutes(offsetMinutes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Reminder r && appointmentId.equals(r.appointmentId) && offsetMinutes == r.offsetMinutes;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * appointmentId.hashCode() + offsetMinutes;
+    }
+}
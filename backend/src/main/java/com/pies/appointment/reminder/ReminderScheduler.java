@@ -0,0 +1,199 @@
+package com.pies.appointment.reminder;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.repository.AppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires appointment reminders at the configured offsets before each start.
+ * <p>
+ * Pending reminders live in a {@link TimingWheel} with one tick per
+ * {@code appointment.reminder.tick}, so booking and cancelling are O(1) and a
+ * tick only touches what is due. When the application is ready the wheel is
+ * loaded with one query over upcoming appointments; after that it follows
+ * committed {@link AppointmentChangedEvent}s; a cancellation also withdraws the
+ * appointment's reminders already handed to the sender but not yet delivered.
+ * Each tick hands due reminders to
+ * the {@link ReminderSender} and records the time fired through in
+ * {@code reminder_checkpoint} in the same transaction. On restart only
+ * reminders due after the checkpoint are loaded, and those missed while down
+ * fire at once if the appointment is still ahead.
+ * <p>
+ * The wheel only sees bookings made on this node; with several nodes enable
+ * reminders on one of them.
+ */
+@Component
+public class ReminderScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    private static final String CHECKPOINT_SQL = "INSERT INTO reminder_checkpoint (id, fired_through) VALUES (1, ?) "
+            + "ON DUPLICATE KEY UPDATE fired_through = VALUES(fired_through)";
+
+    private final AppointmentRepository repo;
+    private final ReminderSender sender;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final List<Integer> offsetMinutes;
+    private final long tickMillis;
+    private final List<AppointmentChangedEvent> pending = new ArrayList<>();
+    private final ScheduledExecutorService ticker;
+    private final Counter fired;
+    private volatile TimingWheel<Reminder> wheel;
+
+    public ReminderScheduler(AppointmentRepository repo,
+                             ReminderSender sender,
+                             JdbcTemplate jdbc,
+                             TransactionTemplate tx,
+                             MeterRegistry registry,
+                             @Value("${appointment.reminder.enabled:true}") boolean enabled,
+                             @Value("${appointment.reminder.offsets:24h,2h}") List<Duration> offsets,
+                             @Value("${appointment.reminder.tick:1m}") Duration tick) {
+        this.repo = repo;
+        this.sender = sender;
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.enabled = enabled;
+        this.offsetMinutes = offsets.stream().map(d -> (int) d.toMinutes()).distinct().toList();
+        this.tickMillis = tick.toMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "appointment-reminders");
+            t.setDaemon(true);
+            return t;
+        });
+        this.fired = Counter.builder("appointment.reminders.fired").register(registry);
+        Gauge.builder("appointment.reminders.pending", this, s -> s.wheel == null ? 0 : s.wheel.size())
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime checkpoint = readCheckpoint().orElse(now);
+        TimingWheel<Reminder> w = new TimingWheel<>(6, 4, started / tickMillis);
+        for (Object[] row : repo.findActiveStartingAfter(checkpoint)) {
+            for (int offset : offsetMinutes) {
+                Reminder r = new Reminder((Long) row[0], (Long) row[1], (Long) row[2], (LocalDateTime) row[3], offset);
+                if (r.dueAt().isAfter(checkpoint)) {
+                    w.schedule(r, tickOf(r.dueAt()));
+                }
+            }
+        }
+        synchronized (pending) {
+            // Bookings committed while loading are replayed on top of the snapshot
+            wheel = w;
+            pending.forEach(this::apply);
+            pending.clear();
+        }
+        ticker.scheduleAtFixedRate(this::tick, tickMillis - started % tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("Reminder scheduler loaded {} reminders due after {} in {} ms",
+                w.size(), checkpoint, System.currentTimeMillis() - started);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        if (!enabled) return;
+        if (wheel == null) {
+            synchronized (pending) {
+                if (wheel == null) {
+                    pending.add(e);
+                    withdrawIfCancelled(e);
+                    return;
+                }
+            }
+        }
+        apply(e);
+        // After the wheel, so a reminder the wheel fires meanwhile is caught too
+        withdrawIfCancelled(e);
+    }
+
+    void tick() {
+        long tick = System.currentTimeMillis() / tickMillis;
+        List<Reminder> due = wheel.advance(tick);
+        LocalDateTime now = LocalDateTime.now();
+        // A reminder whose appointment already started is no longer useful
+        List<Reminder> batch = due.stream().filter(r -> r.appointmentTime().isAfter(now)).toList();
+        try {
+            tx.executeWithoutResult(status -> {
+                if (!batch.isEmpty()) sender.send(batch);
+                jdbc.update(CHECKPOINT_SQL, Timestamp.valueOf(toLocal(tick * tickMillis)));
+            });
+            fired.increment(batch.size());
+        } catch (RuntimeException ex) {
+            logger.warn("Sending {} reminders failed, retrying next tick", batch.size(), ex);
+            batch.forEach(r -> wheel.schedule(r, tick + 1));
+        }
+    }
+
+    private void apply(AppointmentChangedEvent e) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int offset : offsetMinutes) {
+            Reminder r = new Reminder(e.appointmentId(), e.therapistId(), e.patientId(), e.start(), offset);
+            switch (e.type()) {
+                case CREATED -> {
+                    if (r.dueAt().isAfter(now)) wheel.schedule(r, tickOf(r.dueAt()));
+                }
+                case CANCELLED -> wheel.cancel(r);
+            }
+        }
+    }
+
+    private void withdrawIfCancelled(AppointmentChangedEvent e) {
+        if (e.type() != AppointmentChangedEvent.Type.CANCELLED) return;
+        try {
+            sender.withdraw(e.appointmentId());
+        } catch (RuntimeException ex) {
+            // The cancellation is committed; a stale reminder is the lesser harm
+            logger.warn("Could not withdraw reminders of cancelled appointment {}", e.appointmentId(), ex);
+        }
+    }
+
+    private Optional<LocalDateTime> readCheckpoint() {
+        return jdbc.query("SELECT fired_through FROM reminder_checkpoint WHERE id = 1",
+                        (rs, i) -> rs.getTimestamp(1).toLocalDateTime())
+                .stream().findFirst();
+    }
+
+    /**
+     * First tick at or after {@code t}.
+     */
+    private long tickOf(LocalDateTime t) {
+        long millis = t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return Math.floorDiv(millis + tickMillis - 1, tickMillis);
+    }
+
+    private static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,24 @@
+package com.pies.appointment.reminder;
+
+import java.util.List;
+
+/**
+ * Delivers reminders that came due. Called inside the transaction that also
+ * advances the scheduler checkpoint, so a failure retries the batch on the next
+ * tick. Implementations should tolerate seeing a reminder twice.
+ * <p>
+ * {@link OutboxReminderSender} is the default; declare another bean as
+ * {@code @Primary} to send directly.
+ */
+public interface ReminderSender {
+
+    void send(List<Reminder> reminders);
+
+    /**
+     * Withdraws reminders of a cancelled appointment that were handed over but
+     * not delivered yet. Called after the cancellation commits; senders that
+     * deliver directly have nothing to withdraw.
+     */
+    default void withdraw(Long appointmentId) {
+    }
+}
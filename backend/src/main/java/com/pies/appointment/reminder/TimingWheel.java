@@ -0,0 +1,138 @@
+package com.pies.appointment.reminder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel keyed by tick number.
+ * <p>
+ * Level 0 has one slot per tick; each higher level has slots {@code slots} times
+ * wider than the level below. An entry goes into the lowest level whose span
+ * covers its distance from the current tick, so scheduling is O(1). When a lower
+ * level wraps around, the next slot of the level above is cascaded down and its
+ * entries are re-filed by their own deadline, which is how the wheel avoids
+ * touching far-future entries on every tick. Deadlines past the top level's span
+ * are parked in its furthest slot and re-filed when it cascades.
+ * <p>
+ * Cancelling only drops the key from the live map; stale bucket entries are
+ * skipped when their slot is reached. Methods are synchronized.
+ *
+ * @param <K> key that identifies an entry for cancellation
+ */
+public class TimingWheel<K> {
+
+    private record Entry<K>(K key, long deadline) {
+    }
+
+    private final int bits;
+    private final int mask;
+    private final List<List<List<Entry<K>>>> levels;
+    private final Map<K, Long> live = new HashMap<>();
+    private final long maxDelta;
+    private long nextTick;
+
+    /**
+     * @param slotBits  log2 of the slots per level
+     * @param levels    number of levels
+     * @param startTick first tick that {@link #advance} will process
+     */
+    public TimingWheel(int slotBits, int levels, long startTick) {
+        if (slotBits < 1 || levels < 1 || (long) slotBits * levels > 62) {
+            throw new IllegalArgumentException("Unsupported wheel size");
+        }
+        this.bits = slotBits;
+        this.mask = (1 << slotBits) - 1;
+        this.maxDelta = (1L << (slotBits * levels)) - 1;
+        this.levels = new ArrayList<>(levels);
+        for (int l = 0; l < levels; l++) {
+            List<List<Entry<K>>> slots = new ArrayList<>(mask + 1);
+            for (int s = 0; s <= mask; s++) {
+                slots.add(new ArrayList<>());
+            }
+            this.levels.add(slots);
+        }
+        this.nextTick = startTick;
+    }
+
+    public synchronized int size() {
+        return live.size();
+    }
+
+    public synchronized boolean contains(K key) {
+        return live.containsKey(key);
+    }
+
+    /**
+     * Schedules {@code key} for {@code deadline}, replacing an earlier schedule of
+     * the same key. A deadline already passed fires on the next tick processed.
+     */
+    public synchronized void schedule(K key, long deadline) {
+        long d = Math.max(deadline, nextTick);
+        live.put(key, d);
+        file(new Entry<>(key, d));
+    }
+
+    /**
+     * @return whether the key was scheduled
+     */
+    public synchronized boolean cancel(K key) {
+        return live.remove(key) != null;
+    }
+
+    /**
+     * Processes every tick up to and including {@code tick} and returns the keys
+     * that came due, in deadline order.
+     */
+    public synchronized List<K> advance(long tick) {
+        List<K> due = new ArrayList<>();
+        while (nextTick <= tick) {
+            int index = (int) (nextTick & mask);
+            // Cascade as each level wraps; levels above only move when the one below does
+            for (int l = 1; l < levels.size() && index == 0; l++) {
+                index = (int) ((nextTick >>> (bits * l)) & mask);
+                List<Entry<K>> bucket = levels.get(l).get(index);
+                List<Entry<K>> moved = new ArrayList<>(bucket);
+                bucket.clear();
+                for (Entry<K> e : moved) {
+                    if (isLive(e)) file(e);
+                }
+            }
+            List<Entry<K>> bucket = levels.get(0).get((int) (nextTick & mask));
+            for (Entry<K> e : bucket) {
+                if (isLive(e)) {
+                    live.remove(e.key());
+                    due.add(e.key());
+                }
+            }
+            bucket.clear();
+            nextTick++;
+        }
+        return due;
+    }
+
+    /**
+     * The next tick {@link #advance} will process.
+     */
+    public synchronized long nextTick() {
+        return nextTick;
+    }
+
+    private boolean isLive(Entry<K> e) {
+        Long d = live.get(e.key());
+        return d != null && d == e.deadline();
+    }
+
+    private void file(Entry<K> e) {
+        long delta = Math.min(e.deadline() - nextTick, maxDelta);
+        long target = nextTick + delta;
+        int level = 0;
+        while (level < levels.size() - 1 && delta > mask) {
+            delta >>>= bits;
+            level++;
+        }
+        int slot = (int) ((target >>> (bits * level)) & mask);
+        levels.get(level).get(slot).add(e);
+    }
+}
@@ -1,12 +1,21 @@
 package com.pies.appointment.repository;
 
 import com.pies.appointment.model.Appointment;
+import com.pies.appointment.payload.CalendarEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
 
@@ -22,7 +31,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
               WHERE a.therapistId = :therapistId
                 AND a.activeStatus = true
                 AND a.appointmentTime < :newEnd
-                AND FUNCTION('DATE_ADD', a.appointmentTime, FUNCTION('INTERVAL', a.durationMinutes, 'MINUTE')) > :newStart
+                AND a.endTime > :newStart
             """)
     boolean existsTherapistOverlap(
             @Param("therapistId") Long therapistId,
@@ -35,10 +44,178 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
               WHERE a.patientId = :patientId
                 AND a.activeStatus = true
                 AND a.appointmentTime < :newEnd
-                AND FUNCTION('DATE_ADD', a.appointmentTime, FUNCTION('INTERVAL', a.durationMinutes, 'MINUTE')) > :newStart
+                AND a.endTime > :newStart
             """)
     boolean existsPatientOverlap(
             @Param("patientId") Long patientId,
             @Param("newStart") LocalDateTime newStart,
             @Param("newEnd") LocalDateTime newEnd);
-}
\ No newline at end of file
+
+    /**
+     * Active bookings ending after {@code from}, for the in-memory interval index:
+     * id, therapistId, patientId, appointmentTime, endTime
+     */
+    @Query("""
+              SELECT a.id, a.therapistId, a.patientId, a.appointmentTime, a.endTime
+              FROM Appointment a
+              WHERE a.activeStatus = true
+                AND a.endTime > :from
+            """)
+    List<Object[]> findActiveIntervalsEndingAfter(@Param("from") LocalDateTime from);
+
+    /**
+     * Active bookings starting after {@code from}, for the reminder scheduler:
+     * id, therapistId, patientId, appointmentTime
+     */
+    @Query("""
+              SELECT a.id, a.therapistId, a.patientId, a.appointmentTime
+              FROM Appointment a
+              WHERE a.activeStatus = true
+                AND a.appointmentTime > :from
+            """)
+    List<Object[]> findActiveStartingAfter(@Param("from") LocalDateTime from);
+
+    /**
+     * Locks the therapist row until the transaction ends; empty if the therapist does not exist.
+     * Serializes bookings per therapist across application nodes. Selects the id rather than
+     * a count, as H2 (used by the locking tests) refuses FOR UPDATE on an aggregate.
+     */
+    @Query(value = "SELECT id FROM therapists WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockTherapistRow(@Param("id") Long therapistId);
+
+    /**
+     * Locks the patient row until the transaction ends; empty if the patient does not exist.
+     */
+    @Query(value = "SELECT id FROM patients WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockPatientRow(@Param("id") Long patientId);
+
+    /**
+     * Active bookings of the therapist or the patient overlapping {@code [from, to)},
+     * in one range query over both calendar indexes.
+     */
+    @Query("""
+              SELECT a FROM Appointment a
+              WHERE a.activeStatus = true
+                AND (a.therapistId = :therapistId OR a.patientId = :patientId)
+                AND a.appointmentTime < :to
+                AND a.endTime > :from
+              ORDER BY a.appointmentTime
+            """)
+    List<Appointment> findActiveForTherapistOrPatient(
+            @Param("therapistId") Long therapistId,
+            @Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Active bookings of the given therapists overlapping {@code [from, to)}, for the
+     * availability finder: therapistId, appointmentTime, endTime, ordered by therapist
+     * and start so each calendar comes back already sorted.
+     */
+    @Query("""
+              SELECT a.therapistId, a.appointmentTime, a.endTime
+              FROM Appointment a
+              WHERE a.activeStatus = true
+                AND a.therapistId IN :therapistIds
+                AND a.appointmentTime < :to
+                AND a.endTime > :from
+              ORDER BY a.therapistId, a.appointmentTime
+            """)
+    List<Object[]> findActiveIntervalsForTherapists(
+            @Param("therapistIds") Collection<Long> therapistIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Calendar of one therapist over {@code [from, to)}, joined with both display names.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("""
+              SELECT new com.pies.appointment.payload.CalendarEntry(
+                  a.id, a.appointmentTime, a.endTime,
+                  t.id, CONCAT(t.firstName, ' ', t.lastName),
+                  p.id, CONCAT(p.firstName, ' ', p.lastName))
+              FROM Appointment a
+              JOIN Therapist t ON t.id = a.therapistId
+              JOIN Patient p ON p.id = a.patientId
+              WHERE a.therapistId = :therapistId
+                AND a.activeStatus = true
+                AND a.appointmentTime < :to
+                AND a.endTime > :from
+              ORDER BY a.appointmentTime
+            """)
+    Stream<CalendarEntry> streamTherapistCalendar(
+            @Param("therapistId") Long therapistId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Calendar of one patient over {@code [from, to)}, joined with both display names.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("""
+              SELECT new com.pies.appointment.payload.CalendarEntry(
+                  a.id, a.appointmentTime, a.endTime,
+                  t.id, CONCAT(t.firstName, ' ', t.lastName),
+                  p.id, CONCAT(p.firstName, ' ', p.lastName))
+              FROM Appointment a
+              JOIN Therapist t ON t.id = a.therapistId
+              JOIN Patient p ON p.id = a.patientId
+              WHERE a.patientId = :patientId
+                AND a.activeStatus = true
+                AND a.appointmentTime < :to
+                AND a.endTime > :from
+              ORDER BY a.appointmentTime
+            """)
+    Stream<CalendarEntry> streamPatientCalendar(
+            @Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Every active booking of a therapist, oldest first, read in chunks for the iCalendar feed.
+     * The fetch size only chunks with the driver's {@code useCursorFetch}, set under
+     * {@code spring.datasource.hikari.data-source-properties}; otherwise the driver
+     * buffers the whole history.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Appointment> streamByTherapistIdAndActiveStatusTrueOrderByAppointmentTimeAsc(Long therapistId);
+
+    /**
+     * Active booking count and highest id of a therapist; changes whenever the
+     * therapist's calendar does, for feed ETags when several nodes book.
+     */
+    @Query("SELECT COUNT(a), MAX(a.id) FROM Appointment a WHERE a.therapistId = :therapistId AND a.activeStatus = true")
+    List<Object[]> calendarVersion(@Param("therapistId") Long therapistId);
+
+    /**
+     * Patient's active bookings ending after {@code from}, soonest first, with both display names.
+     */
+    @Query("""
+              SELECT new com.pies.appointment.payload.CalendarEntry(
+                  a.id, a.appointmentTime, a.endTime,
+                  t.id, CONCAT(t.firstName, ' ', t.lastName),
+                  p.id, CONCAT(p.firstName, ' ', p.lastName))
+              FROM Appointment a
+              JOIN Therapist t ON t.id = a.therapistId
+              JOIN Patient p ON p.id = a.patientId
+              WHERE a.patientId = :patientId
+                AND a.activeStatus = true
+                AND a.endTime > :from
+              ORDER BY a.appointmentTime
+            """)
+    List<CalendarEntry> findUpcomingForPatient(
+            @Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from,
+            Pageable pageable);
+
+    List<Appointment> findBySeriesIdAndActiveStatusTrueAndAppointmentTimeGreaterThanEqualOrderByAppointmentTimeAsc(
+            Long seriesId, LocalDateTime from);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.activeStatus = false, a.version = a.version + 1 WHERE a.id IN :ids")
+    int cancelAll(@Param("ids") Collection<Long> ids);
+}
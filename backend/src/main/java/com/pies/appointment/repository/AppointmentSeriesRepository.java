@@ -0,0 +1,7 @@
+package com.pies.appointment.repository;
+
+import com.pies.appointment.model.AppointmentSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AppointmentSeriesRepository extends JpaRepository<AppointmentSeries, Long> {
+}
@@ -0,0 +1,64 @@
+package com.pies.appointment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.pies.appointment.payload.CalendarEntry;
+import com.pies.appointment.repository.AppointmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Day and week calendar views. One projection query joins each appointment with
+ * the therapist's and patient's names, and rows are written to the response as a
+ * JSON array while they are read, without loading entities or the whole window.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentCalendarService {
+
+    static final int MAX_RANGE_DAYS = 62;
+
+    private final AppointmentRepository appointmentRepo;
+    private final ObjectMapper mapper;
+
+    /**
+     * Validates the request; call before the response is committed so errors
+     * still map to a status code.
+     */
+    public void check(Long therapistId, Long patientId, LocalDateTime from, LocalDateTime to) {
+        if ((therapistId == null) == (patientId == null)) {
+            throw new IllegalArgumentException("Exactly one of therapistId or patientId is required");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("to must be after from");
+        }
+        if (Duration.between(from, to).toDays() > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range can span at most " + MAX_RANGE_DAYS + " days");
+        }
+    }
+
+    /**
+     * Writes the calendar of the therapist or the patient over {@code [from, to)}
+     * to {@code out} as a JSON array ordered by start.
+     */
+    @Transactional(readOnly = true)
+    public void write(Long therapistId, Long patientId, LocalDateTime from, LocalDateTime to, OutputStream out)
+            throws IOException {
+        check(therapistId, patientId, from, to);
+        try (Stream<CalendarEntry> rows = therapistId != null
+                ? appointmentRepo.streamTherapistCalendar(therapistId, from, to)
+                : appointmentRepo.streamPatientCalendar(patientId, from, to);
+             SequenceWriter writer = mapper.writer().writeValuesAsArray(out)) {
+            for (CalendarEntry e : (Iterable<CalendarEntry>) rows::iterator) {
+                writer.write(e);
+            }
+        }
+    }
+}
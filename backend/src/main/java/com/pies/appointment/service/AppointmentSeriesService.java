@@ -0,0 +1,212 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.model.Appointment;
+import com.pies.appointment.model.AppointmentSeries;
+import com.pies.appointment.payload.AppointmentSeriesRequest;
+import com.pies.appointment.payload.AppointmentSeriesResponse;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.appointment.repository.AppointmentSeriesRepository;
+import com.pies.audit.service.AuditLogService;
+import com.pies.common.ConflictException;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Recurring appointment series.
+ * <p>
+ * A series is booked under the same locks as a single appointment. One range
+ * query loads every active booking of the therapist or patient over the whole
+ * span, a single sweep finds all conflicting occurrences, and the occurrences
+ * are inserted in one JDBC batch. The series and each occurrence get an audit
+ * entry, written together through the batching audit writer.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentSeriesService {
+
+    static final int MAX_OCCURRENCES = 104;
+
+    private static final String INSERT_SQL = "INSERT INTO appointments "
+            + "(therapist_id, patient_id, appointment_time, duration_minutes, end_time, notes, active_status, series_id) "
+            + "VALUES (?,?,?,?,?,?,?,?)";
+
+    private final AppointmentRepository appointmentRepo;
+    private final AppointmentSeriesRepository seriesRepo;
+    private final JdbcTemplate jdbc;
+    private final BookingLocks locks;
+    private final TransactionTemplate tx;
+    private final AuditLogService audit;
+    private final ApplicationEventPublisher events;
+
+    public AppointmentSeriesResponse create(AppointmentSeriesRequest req) {
+        if (req.therapistId() == null || req.patientId() == null || req.firstAppointmentTime() == null) {
+            throw new IllegalArgumentException("therapistId, patientId and firstAppointmentTime are required");
+        }
+        int duration = req.durationMinutes() == null ? 60 : req.durationMinutes();
+        if (duration < 15 || duration > 480) {
+            throw new IllegalArgumentException("durationMinutes must be between 15 and 480");
+        }
+        List<LocalDateTime> starts = occurrences(req);
+        return locks.withCalendars(req.therapistId(), req.patientId(),
+                () -> tx.execute(status -> createLocked(req, starts, duration)));
+    }
+
+    /**
+     * Cancels the series' active occurrences starting at or after {@code from}
+     * (now if null) and closes the series.
+     *
+     * @return number of cancelled appointments
+     */
+    public int cancel(Long seriesId, LocalDateTime from) {
+        LocalDateTime since = from == null ? LocalDateTime.now() : from;
+        return tx.execute(status -> {
+            AppointmentSeries series = seriesRepo.findById(seriesId)
+                    .filter(AppointmentSeries::isActiveStatus)
+                    .orElseThrow(() -> new EntityNotFoundException("Appointment series " + seriesId + " not found"));
+            List<Appointment> upcoming = appointmentRepo
+                    .findBySeriesIdAndActiveStatusTrueAndAppointmentTimeGreaterThanEqualOrderByAppointmentTimeAsc(seriesId, since);
+            List<Long> ids = upcoming.stream().map(Appointment::getId).toList();
+            if (!ids.isEmpty()) {
+                appointmentRepo.cancelAll(ids);
+            }
+            series.setActiveStatus(false);
+            seriesRepo.save(series);
+            audit.record("DELETE", "AppointmentSeries", seriesId);
+            audit.recordAll("DELETE", "Appointment", ids);
+            for (Appointment a : upcoming) {
+                events.publishEvent(new AppointmentChangedEvent(AppointmentChangedEvent.Type.CANCELLED, a.getId(),
+                        a.getTherapistId(), a.getPatientId(), a.getAppointmentTime(), a.getEndTime()));
+            }
+            return upcoming.size();
+        });
+    }
+
+    private AppointmentSeriesResponse createLocked(AppointmentSeriesRequest req, List<LocalDateTime> starts, int duration) {
+        if (appointmentRepo.lockTherapistRow(req.therapistId()).isEmpty()) {
+            throw new IllegalArgumentException("Therapist not found: " + req.therapistId());
+        }
+        if (appointmentRepo.lockPatientRow(req.patientId()).isEmpty()) {
+            throw new IllegalArgumentException("Patient not found: " + req.patientId());
+        }
+
+        LocalDateTime from = starts.get(0);
+        LocalDateTime to = starts.get(starts.size() - 1).plusMinutes(duration);
+        List<Appointment> existing = appointmentRepo.findActiveForTherapistOrPatient(
+                req.therapistId(), req.patientId(), from, to);
+        List<LocalDateTime> conflicts = conflicts(starts, duration, existing);
+        if (!conflicts.isEmpty()) {
+            throw new ConflictException("Series conflicts with existing bookings at " + conflicts);
+        }
+
+        AppointmentSeries series = new AppointmentSeries();
+        series.setTherapistId(req.therapistId());
+        series.setPatientId(req.patientId());
+        series.setFirstStart(from);
+        series.setDurationMinutes(duration);
+        series.setIntervalWeeks(frequency(req).weeks());
+        series.setOccurrences(starts.size());
+        series.setNotes(req.notes());
+        series = seriesRepo.save(series);
+        Long seriesId = series.getId();
+
+        jdbc.batchUpdate(INSERT_SQL, starts, starts.size(), (ps, start) -> {
+            ps.setLong(1, req.therapistId());
+            ps.setLong(2, req.patientId());
+            ps.setTimestamp(3, Timestamp.valueOf(start));
+            ps.setInt(4, duration);
+            ps.setTimestamp(5, Timestamp.valueOf(start.plusMinutes(duration)));
+            if (req.notes() == null) ps.setNull(6, Types.VARCHAR);
+            else ps.setString(6, req.notes());
+            ps.setBoolean(7, true);
+            ps.setLong(8, seriesId);
+        });
+        List<Appointment> created = appointmentRepo
+                .findBySeriesIdAndActiveStatusTrueAndAppointmentTimeGreaterThanEqualOrderByAppointmentTimeAsc(seriesId, from);
+        audit.record("CREATE", "AppointmentSeries", seriesId);
+        audit.recordAll("CREATE", "Appointment", created.stream().map(Appointment::getId).toList());
+        for (Appointment a : created) {
+            events.publishEvent(new AppointmentChangedEvent(AppointmentChangedEvent.Type.CREATED, a.getId(),
+                    a.getTherapistId(), a.getPatientId(), a.getAppointmentTime(), a.getEndTime()));
+        }
+        return new AppointmentSeriesResponse(seriesId, starts);
+    }
+
+    static List<LocalDateTime> occurrences(AppointmentSeriesRequest req) {
+        if ((req.count() == null) == (req.until() == null)) {
+            throw new IllegalArgumentException("Exactly one of count or until is required");
+        }
+        int weeks = frequency(req).weeks();
+        List<LocalDateTime> out = new ArrayList<>();
+        LocalDateTime t = req.firstAppointmentTime();
+        while (req.count() != null ? out.size() < req.count() : !t.toLocalDate().isAfter(req.until())) {
+            if (out.size() == MAX_OCCURRENCES) {
+                throw new IllegalArgumentException("A series can have at most " + MAX_OCCURRENCES + " occurrences");
+            }
+            out.add(t);
+            t = t.plusWeeks(weeks);
+        }
+        if (out.isEmpty()) {
+            throw new IllegalArgumentException("Series has no occurrences");
+        }
+        return out;
+    }
+
+    /**
+     * Start times of occurrences that overlap an existing booking, by one sweep
+     * over the start and end points of both lists. Ends sort before starts at the
+     * same instant, so back-to-back bookings do not conflict.
+     */
+    static List<LocalDateTime> conflicts(List<LocalDateTime> starts, int durationMinutes, List<Appointment> existing) {
+        record Point(long time, boolean start, int occurrence) {
+        }
+        List<Point> points = new ArrayList<>(2 * (starts.size() + existing.size()));
+        for (int i = 0; i < starts.size(); i++) {
+            points.add(new Point(epoch(starts.get(i)), true, i));
+            points.add(new Point(epoch(starts.get(i).plusMinutes(durationMinutes)), false, i));
+        }
+        for (Appointment a : existing) {
+            points.add(new Point(epoch(a.getAppointmentTime()), true, -1));
+            points.add(new Point(epoch(a.getEndTime()), false, -1));
+        }
+        points.sort(Comparator.comparingLong(Point::time).thenComparing(Point::start));
+
+        TreeSet<Integer> conflicting = new TreeSet<>();
+        int openExisting = 0;
+        int openOccurrence = -1;
+        for (Point p : points) {
+            if (!p.start()) {
+                if (p.occurrence() >= 0) openOccurrence = -1;
+                else openExisting--;
+            } else if (p.occurrence() >= 0) {
+                openOccurrence = p.occurrence();
+                if (openExisting > 0) conflicting.add(openOccurrence);
+            } else {
+                openExisting++;
+                if (openOccurrence >= 0) conflicting.add(openOccurrence);
+            }
+        }
+        return conflicting.stream().map(starts::get).toList();
+    }
+
+    private static AppointmentSeriesRequest.Frequency frequency(AppointmentSeriesRequest req) {
+        return req.frequency() == null ? AppointmentSeriesRequest.Frequency.WEEKLY : req.frequency();
+    }
+
+    private static long epoch(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -1,15 +1,18 @@
 package com.pies.appointment.service;
 
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.index.AppointmentIndex;
 import com.pies.appointment.model.Appointment;
 import com.pies.appointment.payload.AppointmentCreateRequest;
 import com.pies.appointment.repository.AppointmentRepository;
 import com.pies.audit.service.AuditLogService;
-import com.pies.patient.repository.PatientRepository;
-import com.pies.therapist.repository.TherapistRepository;
+import com.pies.common.ConflictException;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,27 +22,44 @@ import java.util.List;
 public class AppointmentService {
 
     private final AppointmentRepository appointmentRepo;
-    private final TherapistRepository therapistRepo;
-    private final PatientRepository patientRepo;
     private final AuditLogService audit;
+    private final BookingLocks locks;
+    private final TransactionTemplate tx;
+    private final AppointmentIndex index;
+    private final ApplicationEventPublisher events;
 
-    @Transactional
+    /**
+     * Books an appointment. The overlap check and the insert run under the
+     * therapist's and patient's {@link BookingLocks} stripes, and the transaction
+     * commits before they are released, so concurrent bookings on this node are
+     * serialized. Row locks on the therapist and patient rows do the same across
+     * nodes.
+     */
     public Appointment create(AppointmentCreateRequest req) {
-        if (!therapistRepo.existsById(req.therapistId())) {
+        return locks.withCalendars(req.therapistId(), req.patientId(),
+                () -> tx.execute(status -> createLocked(req)));
+    }
+
+    private Appointment createLocked(AppointmentCreateRequest req) {
+        // Therapist row first, then patient: same order as the in-JVM stripes
+        if (appointmentRepo.lockTherapistRow(req.therapistId()).isEmpty()) {
             throw new IllegalArgumentException("Therapist not found: " + req.therapistId());
         }
-        if (!patientRepo.existsById(req.patientId())) {
+        if (appointmentRepo.lockPatientRow(req.patientId()).isEmpty()) {
             throw new IllegalArgumentException("Patient not found: " + req.patientId());
         }
 
         LocalDateTime start = req.appointmentTime();
         LocalDateTime end = start.plusMinutes(req.durationMinutes() == null ? 60 : req.durationMinutes());
 
-        if (appointmentRepo.existsTherapistOverlap(req.therapistId(), start, end)) {
-            throw new IllegalStateException("Therapist time conflict.");
+        // Interval index answers in O(log n); the DB query covers ranges before its horizon
+        if (index.therapistOverlap(req.therapistId(), start, end)
+                .orElseGet(() -> appointmentRepo.existsTherapistOverlap(req.therapistId(), start, end))) {
+            throw new ConflictException("Therapist time conflict.");
         }
-        if (appointmentRepo.existsPatientOverlap(req.patientId(), start, end)) {
-            throw new IllegalStateException("Patient time conflict.");
+        if (index.patientOverlap(req.patientId(), start, end)
+                .orElseGet(() -> appointmentRepo.existsPatientOverlap(req.patientId(), start, end))) {
+            throw new ConflictException("Patient time conflict.");
         }
 
         Appointment a = new Appointment();
@@ -51,6 +71,8 @@ public class AppointmentService {
         a.setActiveStatus(true);
         Appointment saved = appointmentRepo.save(a);
         audit.record("CREATE", "Appointment", saved.getId());
+        events.publishEvent(new AppointmentChangedEvent(AppointmentChangedEvent.Type.CREATED, saved.getId(),
+                saved.getTherapistId(), saved.getPatientId(), saved.getAppointmentTime(), saved.getEndTime()));
         return saved;
     }
 
@@ -70,6 +92,8 @@ public class AppointmentService {
         a.setActiveStatus(false);
         appointmentRepo.save(a);
         audit.record("DELETE", "Appointment", id);
+        events.publishEvent(new AppointmentChangedEvent(AppointmentChangedEvent.Type.CANCELLED, id,
+                a.getTherapistId(), a.getPatientId(), a.getAppointmentTime(), a.getEndTime()));
     }
 
     public Appointment findById(Long id) {
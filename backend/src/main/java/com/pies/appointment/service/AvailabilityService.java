@@ -0,0 +1,214 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.payload.TherapistAvailability;
+import com.pies.appointment.payload.TimeSlot;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.service.TherapistService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open slots across therapists.
+ * <p>
+ * The free windows of a therapist-day (working hours minus active bookings) are
+ * cached. Days missing from the cache are filled with one range query over the
+ * {@code (therapist_id, appointment_time, end_time)} index for all therapists at
+ * once, and each day's gaps come from a single sweep over its bookings sorted by
+ * start. Committed bookings and cancellations evict the days they touch.
+ * <p>
+ * With {@code appointment.booking.cluster=true} other nodes' bookings are not
+ * seen here, so the cache is bypassed.
+ */
+@Service
+public class AvailabilityService {
+
+    static final int MAX_RANGE_DAYS = 31;
+
+    private record DayKey(Long therapistId, LocalDate day) {
+    }
+
+    private final AppointmentRepository appointmentRepo;
+    private final TherapistService therapistService;
+    private final LocalTime dayStart;
+    private final LocalTime dayEnd;
+    private final Set<DayOfWeek> workingDays;
+    private final int maxEntries;
+    private final boolean cluster;
+    private final Map<DayKey, List<TimeSlot>> cache = new ConcurrentHashMap<>();
+    // Bumped on every eviction; a fill that raced with one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AvailabilityService(AppointmentRepository appointmentRepo,
+                               TherapistService therapistService,
+                               @Value("${appointment.availability.day-start:09:00}") String dayStart,
+                               @Value("${appointment.availability.day-end:17:00}") String dayEnd,
+                               @Value("${appointment.availability.working-days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}")
+                               String workingDays,
+                               @Value("${appointment.availability.cache-size:20000}") int maxEntries,
+                               @Value("${appointment.booking.cluster:false}") boolean cluster) {
+        this.appointmentRepo = appointmentRepo;
+        this.therapistService = therapistService;
+        this.dayStart = LocalTime.parse(dayStart);
+        this.dayEnd = LocalTime.parse(dayEnd);
+        if (!this.dayEnd.isAfter(this.dayStart)) {
+            throw new IllegalArgumentException("appointment.availability.day-end must be after day-start");
+        }
+        this.workingDays = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : workingDays.split(",")) {
+            this.workingDays.add(DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)));
+        }
+        this.maxEntries = maxEntries;
+        this.cluster = cluster;
+    }
+
+    /**
+     * Free windows of at least {@code durationMinutes} inside {@code [from, to)} for
+     * every active therapist, or only those in {@code therapistIds} when given.
+     * Windows in the past are left out.
+     */
+    public List<TherapistAvailability> find(LocalDateTime from, LocalDateTime to, int durationMinutes,
+                                            Collection<Long> therapistIds) {
+        if (from == null || to == null || !to.isAfter(from)) {
+            throw new IllegalArgumentException("to must be after from");
+        }
+        if (Duration.between(from, to).toDays() > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range can span at most " + MAX_RANGE_DAYS + " days");
+        }
+        if (durationMinutes < 15 || durationMinutes > 480) {
+            throw new IllegalArgumentException("durationMinutes must be between 15 and 480");
+        }
+
+        List<Therapist> therapists = therapistService.getAllActiveTherapists().stream()
+                .filter(t -> therapistIds == null || therapistIds.isEmpty() || therapistIds.contains(t.getId()))
+                .toList();
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate d = from.toLocalDate(); d.atTime(dayStart).isBefore(to); d = d.plusDays(1)) {
+            if (workingDays.contains(d.getDayOfWeek())) days.add(d);
+        }
+
+        Map<DayKey, List<TimeSlot>> free = freeWindows(therapists, days);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lower = from.isAfter(now) ? from : now;
+        Duration needed = Duration.ofMinutes(durationMinutes);
+        List<TherapistAvailability> out = new ArrayList<>(therapists.size());
+        for (Therapist t : therapists) {
+            List<TimeSlot> slots = new ArrayList<>();
+            for (LocalDate d : days) {
+                for (TimeSlot gap : free.get(new DayKey(t.getId(), d))) {
+                    LocalDateTime start = gap.start().isAfter(lower) ? gap.start() : lower;
+                    LocalDateTime end = gap.end().isBefore(to) ? gap.end() : to;
+                    if (Duration.between(start, end).compareTo(needed) >= 0) {
+                        slots.add(new TimeSlot(start, end));
+                    }
+                }
+            }
+            out.add(new TherapistAvailability(t.getId(), t.getFirstName() + " " + t.getLastName(), slots));
+        }
+        return out;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        invalidations.incrementAndGet();
+        for (LocalDate d = e.start().toLocalDate(); !d.isAfter(e.end().toLocalDate()); d = d.plusDays(1)) {
+            cache.remove(new DayKey(e.therapistId(), d));
+        }
+    }
+
+    /**
+     * Free windows for every therapist-day, from the cache where possible and
+     * otherwise from one query spanning all missing days.
+     */
+    private Map<DayKey, List<TimeSlot>> freeWindows(List<Therapist> therapists, List<LocalDate> days) {
+        Map<DayKey, List<TimeSlot>> out = new HashMap<>();
+        Set<Long> missingTherapists = new LinkedHashSet<>();
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (Therapist t : therapists) {
+            for (LocalDate d : days) {
+                DayKey key = new DayKey(t.getId(), d);
+                List<TimeSlot> cached = cluster ? null : cache.get(key);
+                if (cached != null) {
+                    out.put(key, cached);
+                    continue;
+                }
+                missingTherapists.add(t.getId());
+                if (firstMissing == null || d.isBefore(firstMissing)) firstMissing = d;
+                if (lastMissing == null || d.isAfter(lastMissing)) lastMissing = d;
+            }
+        }
+        if (missingTherapists.isEmpty()) return out;
+
+        long generation = invalidations.get();
+        Map<Long, List<TimeSlot>> busy = new HashMap<>();
+        for (Object[] row : appointmentRepo.findActiveIntervalsForTherapists(missingTherapists,
+                firstMissing.atTime(dayStart), lastMissing.atTime(dayEnd))) {
+            busy.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                    .add(new TimeSlot((LocalDateTime) row[1], (LocalDateTime) row[2]));
+        }
+        Map<DayKey, List<TimeSlot>> filled = new HashMap<>();
+        for (Long therapistId : missingTherapists) {
+            List<TimeSlot> bookings = busy.getOrDefault(therapistId, List.of());
+            for (LocalDate d : days) {
+                DayKey key = new DayKey(therapistId, d);
+                if (!out.containsKey(key)) {
+                    filled.put(key, gaps(bookings, d.atTime(dayStart), d.atTime(dayEnd)));
+                }
+            }
+        }
+        out.putAll(filled);
+        if (!cluster && invalidations.get() == generation) {
+            if (cache.size() + filled.size() > maxEntries) shrink(filled.size());
+            cache.putAll(filled);
+        }
+        return out;
+    }
+
+    /**
+     * Gaps in {@code [open, close)} not covered by any booking. {@code bookings}
+     * must be sorted by start; one pass keeps the end of the covered prefix.
+     */
+    static List<TimeSlot> gaps(List<TimeSlot> bookings, LocalDateTime open, LocalDateTime close) {
+        List<TimeSlot> out = new ArrayList<>();
+        LocalDateTime covered = open;
+        for (TimeSlot b : bookings) {
+            if (!b.end().isAfter(covered)) continue;
+            if (!b.start().isBefore(close)) break;
+            if (b.start().isAfter(covered)) out.add(new TimeSlot(covered, b.start()));
+            covered = b.end();
+        }
+        if (covered.isBefore(close)) out.add(new TimeSlot(covered, close));
+        return List.copyOf(out);
+    }
+
+    private void shrink(int room) {
+        Iterator<DayKey> it = cache.keySet().iterator();
+        int target = Math.max(0, maxEntries - room - maxEntries / 10);
+        while (cache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
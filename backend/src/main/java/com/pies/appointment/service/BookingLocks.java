@@ -0,0 +1,59 @@
+package com.pies.appointment.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-JVM locks that serialize bookings per therapist and per patient
+ * without a global lock. Ids hash onto a fixed number of stripes, so unrelated
+ * calendars rarely wait on each other.
+ * <p>
+ * The therapist stripe is always taken before the patient stripe, in the same
+ * order as the database row locks in {@link AppointmentService}, so two bookings
+ * can never wait on each other in a cycle.
+ */
+@Component
+public class BookingLocks {
+
+    private final ReentrantLock[] therapistStripes;
+    private final ReentrantLock[] patientStripes;
+
+    public BookingLocks(@Value("${appointment.booking.lock-stripes:256}") int stripes) {
+        this.therapistStripes = new ReentrantLock[stripes];
+        this.patientStripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            therapistStripes[i] = new ReentrantLock();
+            patientStripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs {@code work} while holding the therapist's and the patient's stripe.
+     * The caller's transaction must commit inside {@code work} so the booking is
+     * visible before the next caller is let in.
+     */
+    public <T> T withCalendars(Long therapistId, Long patientId, Supplier<T> work) {
+        ReentrantLock therapist = stripe(therapistStripes, therapistId);
+        ReentrantLock patient = stripe(patientStripes, patientId);
+        therapist.lock();
+        try {
+            patient.lock();
+            try {
+                return work.get();
+            } finally {
+                patient.unlock();
+            }
+        } finally {
+            therapist.unlock();
+        }
+    }
+
+    private static ReentrantLock stripe(ReentrantLock[] stripes, Long id) {
+        int h = Long.hashCode(id);
+        h ^= h >>> 16;
+        return stripes[Math.floorMod(h, stripes.length)];
+    }
+}
@@ -0,0 +1,216 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.model.Appointment;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.repository.TherapistRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Per-therapist iCalendar (RFC 5545) feed.
+ * <p>
+ * Bookings are read from a JPA stream and written as VEVENTs as they arrive,
+ * each entity detached once written, so memory stays flat whatever the history
+ * length (the driver reads the stream in chunks through {@code useCursorFetch},
+ * see {@link AppointmentRepository#streamByTherapistIdAndActiveStatusTrueOrderByAppointmentTimeAsc}).
+ * The feed's ETag comes from a per-therapist counter bumped by committed
+ * {@link AppointmentChangedEvent}s, so polling calendar clients get a 304 without
+ * a query. With {@code appointment.booking.cluster=true} other nodes' bookings do
+ * not reach the counter and the ETag is derived from a count query instead.
+ * <p>
+ * Events carry no patient data; the feed leaves the clinic.
+ * <p>
+ * Calendar apps subscribe to a URL and cannot send a bearer token, so the feed
+ * is addressed by a per-therapist secret instead of the therapist id. Only its
+ * SHA-256 is stored; issuing a new secret or revoking it stops the old URL.
+ */
+@Service
+public class ICalFeedService {
+
+    private static final DateTimeFormatter LOCAL = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final AppointmentRepository appointmentRepo;
+    private final TherapistRepository therapistRepo;
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean cluster;
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    // Counters restart with the process, so the ETag carries the start time too
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public ICalFeedService(AppointmentRepository appointmentRepo,
+                           TherapistRepository therapistRepo,
+                           EntityManager em,
+                           PlatformTransactionManager txManager,
+                           @Value("${appointment.booking.cluster:false}") boolean cluster) {
+        this.appointmentRepo = appointmentRepo;
+        this.therapistRepo = therapistRepo;
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.cluster = cluster;
+    }
+
+    /**
+     * Gives the therapist a new feed secret, replacing any previous one.
+     *
+     * @return the secret, which is not stored and cannot be shown again
+     * @throws EntityNotFoundException if there is no such therapist
+     */
+    @Transactional
+    public String issueSecret(Long therapistId) {
+        byte[] raw = new byte[32];
+        RANDOM.nextBytes(raw);
+        String secret = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        therapist(therapistId).setCalendarFeedHash(hash(secret));
+        return secret;
+    }
+
+    /**
+     * Turns the therapist's feed off; the subscription URL stops working.
+     *
+     * @throws EntityNotFoundException if there is no such therapist
+     */
+    @Transactional
+    public void revokeSecret(Long therapistId) {
+        therapist(therapistId).setCalendarFeedHash(null);
+    }
+
+    /**
+     * The active therapist whose feed {@code secret} opens, if any.
+     */
+    public Optional<Long> therapistFor(String secret) {
+        if (secret == null || secret.isBlank()) {
+            return Optional.empty();
+        }
+        return therapistRepo.findActiveIdByCalendarFeedHash(hash(secret));
+    }
+
+    /**
+     * Current entity tag of the therapist's feed, without quotes.
+     */
+    public String etag(Long therapistId) {
+        if (cluster) {
+            List<Object[]> rows = appointmentRepo.calendarVersion(therapistId);
+            Object[] row = rows.isEmpty() ? new Object[]{0L, null} : rows.get(0);
+            return "ics-" + therapistId + "-" + row[0] + "-" + row[1];
+        }
+        long v = versions.computeIfAbsent(therapistId, k -> new AtomicLong()).get();
+        return "ics-" + epoch + "-" + therapistId + "-" + v;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        versions.computeIfAbsent(e.therapistId(), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Writes the therapist's active bookings as a VCALENDAR. Runs its own
+     * read-only transaction, since it is called from the async streaming thread.
+     */
+    public void write(Long therapistId, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        line(w, "BEGIN:VCALENDAR");
+        line(w, "VERSION:2.0");
+        line(w, "PRODID:-//PIES//Therapist schedule//EN");
+        line(w, "CALSCALE:GREGORIAN");
+        line(w, "X-WR-CALNAME:PIES appointments");
+        String stamp = UTC.format(LocalDateTime.now(ZoneOffset.UTC));
+        IOException failed = readOnlyTx.execute(status -> {
+            try (Stream<Appointment> rows = appointmentRepo
+                    .streamByTherapistIdAndActiveStatusTrueOrderByAppointmentTimeAsc(therapistId)) {
+                for (Appointment a : (Iterable<Appointment>) rows::iterator) {
+                    event(w, a, stamp);
+                    em.detach(a);
+                }
+                return null;
+            } catch (IOException ex) {
+                // Client went away; stop reading
+                return ex;
+            }
+        });
+        if (failed != null) throw failed;
+        line(w, "END:VCALENDAR");
+        w.flush();
+    }
+
+    private Therapist therapist(Long id) {
+        return therapistRepo.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Therapist " + id + " not found"));
+    }
+
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void event(Writer w, Appointment a, String stamp) throws IOException {
+        line(w, "BEGIN:VEVENT");
+        line(w, "UID:appointment-" + a.getId() + "@pies");
+        line(w, "DTSTAMP:" + stamp);
+        line(w, "DTSTART:" + LOCAL.format(a.getAppointmentTime()));
+        line(w, "DTEND:" + LOCAL.format(a.getEndTime()));
+        line(w, "SUMMARY:" + text(a.getSeriesId() == null ? "Appointment" : "Appointment (recurring)"));
+        line(w, "STATUS:CONFIRMED");
+        line(w, "END:VEVENT");
+    }
+
+    /**
+     * Escapes a TEXT value per RFC 5545 section 3.3.11.
+     */
+    static String text(String s) {
+        return s.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,").replace("\n", "\\n");
+    }
+
+    /**
+     * Writes a content line, folded at 75 characters, with the CRLF terminator.
+     */
+    private static void line(Writer w, String s) throws IOException {
+        int i = 0;
+        int width = 75;
+        while (s.length() - i > width) {
+            w.write(s, i, width);
+            w.write("\r\n ");
+            i += width;
+            // Continuation lines spend one character on the leading space
+            width = 74;
+        }
+        w.write(s, i, s.length() - i);
+        w.write("\r\n");
+    }
+}
@@ -0,0 +1,35 @@
+package com.pies.audit.controller;
+
+import com.pies.audit.journal.AuditJournal;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Integrity check of the local audit journal.
+ */
+@Tag(name = "Audit")
+@RestController
+@RequestMapping("/audit/journal")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "audit.journal.enabled", havingValue = "true")
+public class AuditJournalController {
+
+    private final AuditJournal journal;
+
+    /**
+     * Verifies every journal segment and the hash links between consecutive segments.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/verify")
+    public List<AuditJournal.SegmentStatus> verify() throws IOException {
+        return journal.verifyAll();
+    }
+}
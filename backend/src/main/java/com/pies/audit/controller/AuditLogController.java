@@ -0,0 +1,45 @@
+package com.pies.audit.controller;
+
+import com.pies.audit.payload.AuditPage;
+import com.pies.audit.payload.AuditQuery;
+import com.pies.audit.service.AuditQueryService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only audit trail for compliance lookups.
+ */
+@Tag(name = "Audit")
+@RestController
+@RequestMapping("/audit")
+@RequiredArgsConstructor
+public class AuditLogController {
+
+    private final AuditQueryService svc;
+
+    /**
+     * Audit entries newest first, filtered by record, user and time window.
+     * Pass the returned {@code nextCursor} as {@code after} to get the next page.
+     * {@code archived=true} searches rows moved out of the live table.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping
+    public AuditPage search(@RequestParam(required = false) String entity,
+                            @RequestParam(required = false) Long entityId,
+                            @RequestParam(required = false) String username,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                            @RequestParam(required = false) String after,
+                            @RequestParam(defaultValue = "50") int size,
+                            @RequestParam(defaultValue = "false") boolean archived) {
+        return svc.search(new AuditQuery(entity, entityId, username, from, to, archived), after, size);
+    }
+}
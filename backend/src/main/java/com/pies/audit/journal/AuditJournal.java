@@ -0,0 +1,237 @@
+package com.pies.audit.journal;
+
+import com.pies.audit.model.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, hash-chained local journal of audit events, enabled with
+ * {@code audit.journal.enabled=true}.
+ * <p>
+ * Events are appended to the active memory-mapped segment. When it is full, or
+ * older than {@code audit.journal.max-segment-age}, it is sealed and a new segment
+ * starts, chained to the last hash of the sealed one. Sealed segments are shipped
+ * to {@code audit_logs} by {@link AuditJournalShipper} and then renamed to
+ * {@code .shipped}; the files stay as tamper evidence.
+ * <p>
+ * On startup a torn tail of the active segment, the trace of a crash mid-append,
+ * is cut off and counted in {@code audit.journal.truncated}; damage anywhere in a
+ * sealed segment is left for {@link #verifyAll} to report.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.journal.enabled", havingValue = "true")
+public class AuditJournal {
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournal.class);
+
+    static final String ACTIVE_SUFFIX = ".journal";
+    static final String SHIPPED_SUFFIX = ".shipped";
+
+    /**
+     * Integrity of one segment file.
+     *
+     * @param chained whether the header hash matches the last hash of the previous segment
+     */
+    public record SegmentStatus(String file, long sequence, int records, boolean valid, long badOffset,
+                                boolean chained) {
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final Counter truncated;
+    private JournalSegment active;
+    private long activeOpenedAt;
+
+    public AuditJournal(@Value("${audit.journal.dir:./audit-journal}") String dir,
+                        @Value("${audit.journal.segment-size:16777216}") int segmentBytes,
+                        @Value("${audit.journal.max-segment-age:5m}") Duration maxSegmentAge,
+                        MeterRegistry registry) {
+        this.dir = Path.of(dir);
+        this.segmentBytes = segmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAge.toMillis();
+        this.truncated = Counter.builder("audit.journal.truncated").register(registry);
+    }
+
+    @PostConstruct
+    synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> segments = list(ACTIVE_SUFFIX);
+        List<Path> shipped = list(SHIPPED_SUFFIX);
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            // The header is only rebuilt from the previous segment if it was torn
+            byte[] prev = JournalSegment.hasHeader(last) ? null : lastHashBefore(last);
+            active = JournalSegment.openForAppend(last, sequenceOf(last), prev);
+            if (active.truncatedAt() >= 0) {
+                truncated.increment();
+                logger.warn("Audit journal segment {} had a torn tail; cut off at offset {}, {} records kept",
+                        last.getFileName(), active.truncatedAt(), active.records());
+            }
+        } else {
+            long seq = 1;
+            byte[] prev = new byte[JournalSegment.HASH_BYTES];
+            if (!shipped.isEmpty()) {
+                var last = JournalSegment.verify(shipped.get(shipped.size() - 1));
+                seq = last.sequence() + 1;
+                prev = last.lastHash();
+            }
+            active = JournalSegment.create(segmentPath(seq, ACTIVE_SUFFIX), seq, prev, segmentBytes);
+        }
+        activeOpenedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Appends one event to the active segment, rolling to a new segment when full.
+     */
+    public synchronized void append(AuditLog log) {
+        byte[] payload = JournalSegment.encode(log);
+        try {
+            if (!active.tryAppend(payload)) {
+                roll();
+                if (!active.tryAppend(payload)) {
+                    throw new IllegalArgumentException("Audit record larger than a journal segment");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the active segment's mapped pages to disk.
+     */
+    public synchronized void force() {
+        active.force();
+    }
+
+    /**
+     * Segments ready to ship, oldest first. Seals the active segment first if it has
+     * records and has been open longer than the maximum segment age.
+     */
+    synchronized List<Path> sealedSegments() throws IOException {
+        if (active.records() > 0 && System.currentTimeMillis() - activeOpenedAt > maxSegmentAgeMillis) {
+            roll();
+        }
+        List<Path> sealed = new ArrayList<>(list(ACTIVE_SUFFIX));
+        sealed.remove(active.path());
+        return sealed;
+    }
+
+    synchronized void markShipped(Path segment) throws IOException {
+        Files.move(segment, shippedPath(segment), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Verifies every segment (shipped and pending) and the hash links between them.
+     * The active segment is checked up to its last committed record, so appends can
+     * go on meanwhile; a pending segment shipped during the check is read under its
+     * new name.
+     */
+    public List<SegmentStatus> verifyAll() throws IOException {
+        List<Path> all;
+        Path activePath;
+        long activeEnd;
+        synchronized (this) {
+            all = new ArrayList<>(list(SHIPPED_SUFFIX));
+            all.addAll(list(ACTIVE_SUFFIX));
+            activePath = active.path();
+            activeEnd = active.position();
+            active.force();
+        }
+        all.sort(Path::compareTo);
+        List<SegmentStatus> out = new ArrayList<>();
+        byte[] prevLast = null;
+        for (Path p : all) {
+            SegmentStatus status;
+            JournalSegment.Verification v;
+            long limit = p.equals(activePath) ? activeEnd : Long.MAX_VALUE;
+            try {
+                v = JournalSegment.verify(p, limit);
+                status = status(p, v, prevLast);
+            } catch (NoSuchFileException e) {
+                if (!p.getFileName().toString().endsWith(ACTIVE_SUFFIX)) throw e;
+                p = shippedPath(p);
+                v = JournalSegment.verify(p, limit);
+                status = status(p, v, prevLast);
+            }
+            out.add(status);
+            prevLast = v.lastHash();
+        }
+        return out;
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        active.close();
+    }
+
+    private void roll() throws IOException {
+        long next = active.sequence() + 1;
+        byte[] prev = active.lastHash();
+        active.close();
+        active = JournalSegment.create(segmentPath(next, ACTIVE_SUFFIX), next, prev, segmentBytes);
+        activeOpenedAt = System.currentTimeMillis();
+    }
+
+    private SegmentStatus status(Path p, JournalSegment.Verification v, byte[] prevLast) throws IOException {
+        boolean chained = prevLast == null || Arrays.equals(prevLast, headerHash(p));
+        return new SegmentStatus(p.getFileName().toString(), v.sequence(), v.records(), v.valid(),
+                v.badOffset(), chained);
+    }
+
+    private byte[] lastHashBefore(Path segment) throws IOException {
+        List<Path> earlier = new ArrayList<>(list(SHIPPED_SUFFIX));
+        earlier.addAll(list(ACTIVE_SUFFIX));
+        earlier.removeIf(p -> p.getFileName().compareTo(segment.getFileName()) >= 0);
+        if (earlier.isEmpty()) return new byte[JournalSegment.HASH_BYTES];
+        earlier.sort(Path::compareTo);
+        return JournalSegment.verify(earlier.get(earlier.size() - 1)).lastHash();
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    private static Path shippedPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - ACTIVE_SUFFIX.length()) + SHIPPED_SUFFIX);
+    }
+
+    private byte[] headerHash(Path p) throws IOException {
+        byte[] header = new byte[JournalSegment.HEADER_BYTES];
+        try (var in = Files.newInputStream(p)) {
+            if (in.readNBytes(header, 0, header.length) < header.length) return null;
+        }
+        return Arrays.copyOfRange(header, 16, 16 + JournalSegment.HASH_BYTES);
+    }
+
+    private Path segmentPath(long seq, String suffix) {
+        return dir.resolve(String.format("%016d%s", seq, suffix));
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+}
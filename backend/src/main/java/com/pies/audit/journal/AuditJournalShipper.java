@@ -0,0 +1,83 @@
+package com.pies.audit.journal;
+
+import com.pies.audit.model.AuditLog;
+import com.pies.audit.service.AuditWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Ships sealed journal segments into {@code audit_logs}.
+ * <p>
+ * Each segment is verified, inserted in multi-row batches and recorded in
+ * {@code audit_journal_shipments} in one transaction, so a crash between the
+ * insert and the file rename never ships a segment twice.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.journal.enabled", havingValue = "true")
+public class AuditJournalShipper {
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournalShipper.class);
+
+    private final AuditJournal journal;
+    private final AuditWriter writer;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public AuditJournalShipper(AuditJournal journal,
+                               AuditWriter writer,
+                               JdbcTemplate jdbc,
+                               TransactionTemplate tx,
+                               @Value("${audit.writer.batch-size:200}") int batchSize) {
+        this.journal = journal;
+        this.writer = writer;
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${audit.journal.ship-interval-ms:30000}")
+    public void ship() {
+        journal.force();
+        try {
+            for (Path segment : journal.sealedSegments()) {
+                shipSegment(segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Segment stays in place and is retried on the next run
+            logger.error("Shipping audit journal failed", e);
+        }
+    }
+
+    private void shipSegment(Path segment) throws IOException {
+        var verification = JournalSegment.verify(segment);
+        if (!verification.valid()) {
+            throw new IOException("Refusing to ship corrupt journal segment " + segment
+                    + " (offset " + verification.badOffset() + ")");
+        }
+        List<AuditLog> logs = JournalSegment.readAll(segment);
+        long seq = verification.sequence();
+        tx.executeWithoutResult(status -> {
+            Integer done = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM audit_journal_shipments WHERE segment_seq = ?", Integer.class, seq);
+            if (done != null && done > 0) return;
+            for (int from = 0; from < logs.size(); from += batchSize) {
+                writer.writeBatch(logs.subList(from, Math.min(logs.size(), from + batchSize)));
+            }
+            jdbc.update("INSERT INTO audit_journal_shipments (segment_seq, records, last_hash) VALUES (?,?,?)",
+                    seq, logs.size(), HexFormat.of().formatHex(verification.lastHash()));
+        });
+        journal.markShipped(segment);
+        logger.info("Shipped audit journal segment {} ({} records)", seq, logs.size());
+    }
+}
@@ -0,0 +1,338 @@
+package com.pies.audit.journal;
+
+import com.pies.audit.model.AuditLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One fixed-size, memory-mapped journal file.
+ * <p>
+ * Layout: a 48-byte header (magic, format version, segment sequence, hash of the
+ * last record of the previous segment) followed by records of the form
+ * {@code [int length][payload][32-byte chain hash]}. The chain hash of a record is
+ * SHA-256(previous chain hash || payload), so changing, removing or reordering any
+ * record breaks every hash after it. The length is written last and acts as the
+ * commit marker; a zero length marks the end of the segment.
+ * <p>
+ * A crash can leave the active segment with a torn tail (a length whose payload
+ * or hash never reached the disk) or, right after a roll, a torn header. Reopening
+ * cuts the tail off by zeroing it and rewrites a torn header; sealed segments are
+ * never repaired.
+ */
+final class JournalSegment implements AutoCloseable {
+
+    static final int MAGIC = 0x50414a31; // "PAJ1"
+    static final int FORMAT_VERSION = 1;
+    static final int HASH_BYTES = 32;
+    static final int HEADER_BYTES = 4 + 4 + 8 + HASH_BYTES;
+
+    /**
+     * Outcome of a sequential integrity check.
+     *
+     * @param badOffset file offset of the first record that failed, or -1
+     */
+    record Verification(long sequence, int records, byte[] lastHash, long endOffset, long badOffset) {
+        boolean valid() {
+            return badOffset < 0;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long sequence;
+    private final Path path;
+    private final long truncatedAt;
+    private byte[] lastHash;
+    private int position;
+    private int records;
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer, long sequence,
+                           byte[] lastHash, int position, int records, long truncatedAt) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.sequence = sequence;
+        this.lastHash = lastHash;
+        this.position = position;
+        this.records = records;
+        this.truncatedAt = truncatedAt;
+    }
+
+    /**
+     * Creates and maps a new zero-filled segment chained to {@code prevHash}.
+     */
+    static JournalSegment create(Path path, long sequence, byte[] prevHash, int sizeBytes) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        writeHeader(buf, sequence, prevHash);
+        buf.force();
+        return new JournalSegment(path, ch, buf, sequence, prevHash.clone(), HEADER_BYTES, 0, -1);
+    }
+
+    /**
+     * Maps the active segment for further appends, recovering the write position
+     * and last hash by a verification pass. Everything from the first bad record
+     * on is zeroed; a bad header is rewritten from {@code sequence} and
+     * {@code prevHash}, dropping whatever followed it.
+     *
+     * @param prevHash last hash of the previous segment; only read if the header is bad
+     */
+    static JournalSegment openForAppend(Path path, long sequence, byte[] prevHash) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        Verification v = verify(buf, null);
+        long truncatedAt = v.badOffset();
+        if (!v.valid()) {
+            if (buf.capacity() < HEADER_BYTES + 4) {
+                ch.close();
+                throw new IOException("Journal segment " + path + " is too short to recover");
+            }
+            int from = (int) v.badOffset();
+            if (from < HEADER_BYTES) {
+                writeHeader(buf, sequence, prevHash);
+                from = HEADER_BYTES;
+            }
+            zero(buf, from);
+            buf.force();
+            v = verify(buf, null);
+        }
+        return new JournalSegment(path, ch, buf, v.sequence(), v.lastHash(), (int) v.endOffset(), v.records(),
+                truncatedAt);
+    }
+
+    /**
+     * Appends a record if it fits; the caller rolls to a new segment otherwise.
+     */
+    boolean tryAppend(byte[] payload) {
+        int needed = 4 + payload.length + HASH_BYTES;
+        // keep 4 bytes for the zero end marker
+        if (position + needed + 4 > buffer.capacity()) {
+            return false;
+        }
+        byte[] hash = chain(lastHash, payload);
+        buffer.put(position + 4, payload);
+        buffer.put(position + 4 + payload.length, hash);
+        buffer.putInt(position, payload.length);
+        position += needed;
+        lastHash = hash;
+        records++;
+        return true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    byte[] lastHash() {
+        return lastHash.clone();
+    }
+
+    int records() {
+        return records;
+    }
+
+    /**
+     * End of the committed records; nothing before it changes again.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Offset at which a torn tail was cut off when the segment was opened, or -1.
+     */
+    long truncatedAt() {
+        return truncatedAt;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Verifies a segment file in one sequential pass.
+     */
+    static Verification verify(Path path) throws IOException {
+        return verify(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Verifies the first {@code limit} bytes of a segment file, for a segment that
+     * is still being appended to past {@code limit}.
+     */
+    static Verification verify(Path path, long limit) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return verify(ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(limit, ch.size())), null);
+        }
+    }
+
+    /**
+     * Whether the file starts with a readable segment header.
+     */
+    static boolean hasHeader(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) return false;
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            return header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION;
+        }
+    }
+
+    /**
+     * Reads all records of a verified segment.
+     *
+     * @throws IOException if the segment fails verification
+     */
+    static List<AuditLog> readAll(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<AuditLog> out = new ArrayList<>();
+            Verification v = verify(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()), out);
+            if (!v.valid()) {
+                throw new IOException("Journal segment " + path + " is corrupt at offset " + v.badOffset());
+            }
+            return out;
+        }
+    }
+
+    private static Verification verify(ByteBuffer buf, List<AuditLog> sink) {
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+            return new Verification(-1, 0, new byte[HASH_BYTES], 0, 0);
+        }
+        long sequence = buf.getLong(8);
+        byte[] prev = new byte[HASH_BYTES];
+        buf.get(16, prev);
+        int pos = HEADER_BYTES;
+        int count = 0;
+        while (pos + 4 <= buf.capacity()) {
+            int len = buf.getInt(pos);
+            if (len == 0) {
+                return new Verification(sequence, count, prev, pos, -1);
+            }
+            if (len < 0 || (long) pos + 4 + len + HASH_BYTES > buf.capacity()) {
+                return new Verification(sequence, count, prev, pos, pos);
+            }
+            byte[] payload = new byte[len];
+            buf.get(pos + 4, payload);
+            byte[] stored = new byte[HASH_BYTES];
+            buf.get(pos + 4 + len, stored);
+            byte[] expected = chain(prev, payload);
+            if (!Arrays.equals(expected, stored)) {
+                return new Verification(sequence, count, prev, pos, pos);
+            }
+            if (sink != null) {
+                sink.add(decode(payload));
+            }
+            prev = expected;
+            pos += 4 + len + HASH_BYTES;
+            count++;
+        }
+        return new Verification(sequence, count, prev, pos, -1);
+    }
+
+    private static void writeHeader(ByteBuffer buf, long sequence, byte[] prevHash) {
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, FORMAT_VERSION);
+        buf.putLong(8, sequence);
+        buf.put(16, prevHash, 0, HASH_BYTES);
+    }
+
+    private static void zero(ByteBuffer buf, int from) {
+        byte[] zeros = new byte[8192];
+        for (int pos = from; pos < buf.capacity(); pos += zeros.length) {
+            buf.put(pos, zeros, 0, Math.min(zeros.length, buf.capacity() - pos));
+        }
+    }
+
+    static byte[] chain(byte[] prevHash, byte[] payload) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(prevHash);
+            md.update(payload);
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* ===== record payload encoding ===== */
+
+    static byte[] encode(AuditLog log) {
+        byte[] user = bytes(log.getUsername());
+        byte[] action = bytes(log.getAction());
+        byte[] entity = bytes(log.getEntity());
+        int size = 8 + 4 + 1 + 8 + 3 * 4 + len(user) + len(action) + len(entity);
+        ByteBuffer b = ByteBuffer.allocate(size);
+        LocalDateTime ts = log.getTimestamp();
+        b.putLong(ts.toEpochSecond(ZoneOffset.UTC));
+        b.putInt(ts.getNano());
+        b.put((byte) (log.getEntityId() == null ? 0 : 1));
+        b.putLong(log.getEntityId() == null ? 0 : log.getEntityId());
+        putString(b, user);
+        putString(b, action);
+        putString(b, entity);
+        return b.array();
+    }
+
+    static AuditLog decode(byte[] payload) {
+        ByteBuffer b = ByteBuffer.wrap(payload);
+        AuditLog log = new AuditLog();
+        long seconds = b.getLong();
+        int nanos = b.getInt();
+        log.setTimestamp(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        boolean hasEntityId = b.get() == 1;
+        long entityId = b.getLong();
+        log.setEntityId(hasEntityId ? entityId : null);
+        log.setUsername(getString(b));
+        log.setAction(getString(b));
+        log.setEntity(getString(b));
+        return log;
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int len(byte[] b) {
+        return b == null ? 0 : b.length;
+    }
+
+    private static void putString(ByteBuffer b, byte[] s) {
+        if (s == null) {
+            b.putInt(-1);
+        } else {
+            b.putInt(s.length);
+            b.put(s);
+        }
+    }
+
+    private static String getString(ByteBuffer b) {
+        int n = b.getInt();
+        if (n < 0) return null;
+        byte[] s = new byte[n];
+        b.get(s);
+        return new String(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,7 @@
+package com.pies.audit.payload;
+
+import java.time.LocalDateTime;
+
+public record AuditEntry(Long id, String username, String action, String entity, Long entityId,
+                         LocalDateTime timestamp) {
+}
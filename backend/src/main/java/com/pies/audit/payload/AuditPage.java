@@ -0,0 +1,9 @@
+package com.pies.audit.payload;
+
+import java.util.List;
+
+/**
+ * One keyset page of audit entries, newest first. {@code nextCursor} is null on the last page.
+ */
+public record AuditPage(List<AuditEntry> content, String nextCursor) {
+}
@@ -0,0 +1,10 @@
+package com.pies.audit.payload;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for the audit trail; every field is optional.
+ */
+public record AuditQuery(String entity, Long entityId, String username,
+                         LocalDateTime from, LocalDateTime to, boolean archived) {
+}
@@ -0,0 +1,69 @@
+package com.pies.audit.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps {@code audit_logs} bounded by moving rows older than the retention window
+ * (whole months) into {@code audit_logs_archive}. Rows are moved in small chunks,
+ * each copied and deleted in one transaction, so the job never holds long locks.
+ */
+@Component
+public class AuditArchiveJob {
+    private static final Logger logger = LoggerFactory.getLogger(AuditArchiveJob.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int retainMonths;
+    private final int chunkSize;
+
+    public AuditArchiveJob(JdbcTemplate jdbc,
+                           TransactionTemplate tx,
+                           @Value("${audit.archive.retain-months:12}") int retainMonths,
+                           @Value("${audit.archive.chunk-size:1000}") int chunkSize) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.retainMonths = retainMonths;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${audit.archive.cron:0 30 2 * * *}")
+    public void archive() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDate.now().withDayOfMonth(1).minusMonths(retainMonths).atStartOfDay());
+        int moved = 0;
+        int n;
+        do {
+            n = moveChunk(cutoff);
+            moved += n;
+        } while (n == chunkSize);
+        if (moved > 0) {
+            logger.info("Archived {} audit rows older than {}", moved, cutoff);
+        }
+    }
+
+    private int moveChunk(Timestamp cutoff) {
+        Integer n = tx.execute(status -> {
+            List<Long> ids = jdbc.queryForList(
+                    "SELECT id FROM audit_logs WHERE `timestamp` < ? ORDER BY `timestamp`, id LIMIT ? FOR UPDATE",
+                    Long.class, cutoff, chunkSize);
+            if (ids.isEmpty()) return 0;
+            String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+            Object[] args = ids.toArray();
+            jdbc.update("INSERT INTO audit_logs_archive (id, username, action, entity, entity_id, `timestamp`) "
+                    + "SELECT id, username, action, entity, entity_id, `timestamp` FROM audit_logs WHERE id IN (" + in + ")", args);
+            jdbc.update("DELETE FROM audit_logs WHERE id IN (" + in + ")", args);
+            return ids.size();
+        });
+        return n == null ? 0 : n;
+    }
+}
@@ -1,29 +1,102 @@
 package com.pies.audit.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.pies.audit.journal.AuditJournal;
 import com.pies.audit.model.AuditLog;
 import com.pies.audit.repository.AuditLogRepository;
+import com.pies.common.AfterCommit;
 
-import lombok.RequiredArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Records audit events for create, update and delete operations.
+ * <p>
+ * By default the event is saved inside the caller's transaction, so it commits
+ * or rolls back with the change and no committed change goes unaudited.
+ * <p>
+ * {@code audit.writer.async=true} trades that guarantee for cheaper writes: the
+ * event is captured on the calling thread (user and time) and handed to
+ * {@link AuditWriter} only after the business transaction commits, so the write
+ * path pays no extra INSERT, but events still queued when the process dies are
+ * lost. When the local {@link AuditJournal} is enabled, committed events are
+ * appended there instead and shipped to the table in bulk.
+ */
 @Service
-@RequiredArgsConstructor
 public class AuditLogService {
     private final AuditLogRepository repo;
+    private final AuditWriter writer;
+    private final Optional<AuditJournal> journal;
+    private final boolean async;
+
+    public AuditLogService(AuditLogRepository repo,
+                           AuditWriter writer,
+                           Optional<AuditJournal> journal,
+                           @Value("${audit.writer.async:false}") boolean async) {
+        this.repo = repo;
+        this.writer = writer;
+        this.journal = journal;
+        this.async = async;
+    }
 
-    @Transactional
     public void record(String action, String entity, Long entityId) {
+        AuditLog log = newLog(currentUser(), action, entity, entityId, LocalDateTime.now());
+        if (journal.isPresent()) {
+            AfterCommit.run(() -> appendToJournal(log));
+        } else if (async) {
+            AfterCommit.run(() -> writer.enqueue(log));
+        } else {
+            repo.save(log);
+        }
+    }
+
+    /**
+     * Records the same action for many entities of one change (e.g. the
+     * occurrences of a series). Without the async writer the rows go in with a
+     * single multi-row INSERT rather than one save each.
+     */
+    public void recordAll(String action, String entity, Collection<Long> entityIds) {
+        if (entityIds.isEmpty()) return;
+        String user = currentUser();
+        LocalDateTime now = LocalDateTime.now();
+        List<AuditLog> logs = entityIds.stream()
+                .map(id -> newLog(user, action, entity, id, now))
+                .toList();
+        if (journal.isPresent()) {
+            AfterCommit.run(() -> logs.forEach(this::appendToJournal));
+        } else if (async) {
+            AfterCommit.run(() -> logs.forEach(writer::enqueue));
+        } else {
+            writer.writeBatch(logs);
+        }
+    }
+
+    private static String currentUser() {
         var auth = SecurityContextHolder.getContext().getAuthentication();
-        String user = auth != null ? auth.getName() : "anonymous";
+        return auth != null ? auth.getName() : "anonymous";
+    }
+
+    private static AuditLog newLog(String user, String action, String entity, Long entityId, LocalDateTime at) {
         AuditLog log = new AuditLog();
         log.setUsername(user);
         log.setAction(action);
         log.setEntity(entity);
         log.setEntityId(entityId);
-        log.setTimestamp(java.time.LocalDateTime.now());
-        repo.save(log);
+        log.setTimestamp(at);
+        return log;
+    }
+
+    private void appendToJournal(AuditLog log) {
+        try {
+            journal.get().append(log);
+        } catch (RuntimeException e) {
+            // Never lose the event of a committed change
+            writer.enqueue(log);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package com.pies.audit.service;
+
+import com.pies.audit.payload.AuditEntry;
+import com.pies.audit.payload.AuditPage;
+import com.pies.audit.payload.AuditQuery;
+import com.pies.common.Cursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Read side of the audit trail.
+ * <p>
+ * Only the filters actually given are added to the WHERE clause, so MySQL can use
+ * the (entity, entity_id, timestamp) or (username, timestamp) index. Pages are
+ * keyset-paginated on (timestamp, id) descending: each page costs one index range
+ * scan, with no OFFSET and no count query.
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final RowMapper<AuditEntry> ROW_MAPPER = (rs, n) -> {
+        Timestamp ts = rs.getTimestamp("timestamp");
+        return new AuditEntry(
+                rs.getLong("id"),
+                rs.getString("username"),
+                rs.getString("action"),
+                rs.getString("entity"),
+                rs.getObject("entity_id", Long.class),
+                ts == null ? null : ts.toLocalDateTime());
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public AuditPage search(AuditQuery query, String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, username, action, entity, entity_id, `timestamp` FROM ")
+                .append(query.archived() ? "audit_logs_archive" : "audit_logs")
+                .append(" WHERE 1=1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        if (query.entity() != null && !query.entity().isBlank()) {
+            sql.append(" AND entity = :entity");
+            params.addValue("entity", query.entity());
+        }
+        if (query.entityId() != null) {
+            sql.append(" AND entity_id = :entityId");
+            params.addValue("entityId", query.entityId());
+        }
+        if (query.username() != null && !query.username().isBlank()) {
+            sql.append(" AND username = :username");
+            params.addValue("username", query.username());
+        }
+        if (query.from() != null) {
+            sql.append(" AND `timestamp` >= :from");
+            params.addValue("from", Timestamp.valueOf(query.from()));
+        }
+        if (query.to() != null) {
+            sql.append(" AND `timestamp` < :to");
+            params.addValue("to", Timestamp.valueOf(query.to()));
+        }
+        if (after != null && !after.isBlank()) {
+            String[] keys = Cursor.decode(after, 2);
+            sql.append(" AND (`timestamp` < :afterTs OR (`timestamp` = :afterTs AND id < :afterId))");
+            try {
+                params.addValue("afterTs", Timestamp.valueOf(LocalDateTime.parse(keys[0])));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            params.addValue("afterId", Long.parseLong(keys[1]));
+        }
+        sql.append(" ORDER BY `timestamp` DESC, id DESC LIMIT :limit");
+        params.addValue("limit", size + 1);
+
+        List<AuditEntry> rows = jdbc.query(sql.toString(), params, ROW_MAPPER);
+        if (rows.size() <= size) {
+            return new AuditPage(rows, null);
+        }
+        List<AuditEntry> page = rows.subList(0, size);
+        AuditEntry last = page.get(size - 1);
+        return new AuditPage(List.copyOf(page), Cursor.encode(last.timestamp(), last.id()));
+    }
+}
@@ -0,0 +1,239 @@
+package com.pies.audit.service;
+
+import com.pies.audit.model.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer for audit events.
+ * <p>
+ * Events are buffered in a bounded queue and flushed by a single thread as
+ * multi-row INSERT statements. When the buffer is full the producer waits up to
+ * {@code audit.writer.offer-timeout}; if there is still no room, or the writer is
+ * stopped, the event is written synchronously on the calling thread. On shutdown
+ * the writer drains the buffer before the DataSource is closed.
+ * <p>
+ * A batch that fails {@code audit.writer.max-attempts} times in a row is split
+ * and written row by row, so one bad row cannot stall the writer; rows the
+ * database still rejects are kept in {@code audit_dead_letters} with the error,
+ * and only if that insert fails too do they end up in the {@code audit.deadletter}
+ * log alone.
+ * <p>
+ * The buffer lives in memory only: events queued when the process dies
+ * (crash, {@code kill -9}) are lost. That is why it is only used with
+ * {@code audit.writer.async=true}; by default the row is saved in the business
+ * transaction.
+ */
+@Component
+public class AuditWriter implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+    private static final Logger deadLetters = LoggerFactory.getLogger("audit.deadletter");
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO audit_logs (username, action, entity, entity_id, `timestamp`) VALUES ";
+    private static final String ROW = "(?,?,?,?,?)";
+    private static final String INSERT_DEAD_LETTER = "INSERT INTO audit_dead_letters"
+            + " (username, action, entity, entity_id, `timestamp`, error) VALUES (?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbc;
+    private final BlockingQueue<AuditLog> buffer;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final Counter written;
+    private final Counter synchronousWrites;
+    private final Counter deadLettered;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public AuditWriter(JdbcTemplate jdbc,
+                       MeterRegistry registry,
+                       @Value("${audit.writer.buffer-capacity:10000}") int capacity,
+                       @Value("${audit.writer.batch-size:200}") int batchSize,
+                       @Value("${audit.writer.offer-timeout:200ms}") Duration offerTimeout,
+                       @Value("${audit.writer.max-attempts:3}") int maxAttempts) {
+        this.jdbc = jdbc;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeout.toMillis();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.written = Counter.builder("audit.writer.written").register(registry);
+        this.synchronousWrites = Counter.builder("audit.writer.synchronous").register(registry);
+        this.deadLettered = Counter.builder("audit.writer.dead-lettered").register(registry);
+        Gauge.builder("audit.writer.buffer.depth", buffer, BlockingQueue::size).register(registry);
+    }
+
+    /**
+     * Queues an event of an already committed change.
+     */
+    public void enqueue(AuditLog log) {
+        if (running) {
+            try {
+                if (buffer.offer(log, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronousWrites.increment();
+        writeOrSplit(List.of(log));
+    }
+
+    /**
+     * Writes events as one multi-row INSERT.
+     */
+    public void writeBatch(List<AuditLog> logs) {
+        if (logs.isEmpty()) return;
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + logs.size() * (ROW.length() + 1))
+                .append(INSERT_PREFIX);
+        Object[] args = new Object[logs.size() * 5];
+        int i = 0;
+        for (AuditLog log : logs) {
+            if (i > 0) sql.append(',');
+            sql.append(ROW);
+            args[i++] = log.getUsername();
+            args[i++] = log.getAction();
+            args[i++] = log.getEntity();
+            args[i++] = log.getEntityId();
+            args[i++] = Timestamp.valueOf(log.getTimestamp());
+        }
+        jdbc.update(sql.toString(), args);
+        written.increment(logs.size());
+    }
+
+    /**
+     * Writes the batch, falling back to one row at a time if it fails; rows that
+     * still fail are dead-lettered.
+     */
+    private void writeOrSplit(List<AuditLog> logs) {
+        try {
+            writeBatch(logs);
+        } catch (RuntimeException e) {
+            writeRowByRow(logs);
+        }
+    }
+
+    private void writeRowByRow(List<AuditLog> logs) {
+        for (AuditLog log : logs) {
+            try {
+                writeBatch(List.of(log));
+            } catch (RuntimeException e) {
+                deadLetter(log, e);
+            }
+        }
+    }
+
+    private void deadLetter(AuditLog log, RuntimeException cause) {
+        deadLettered.increment();
+        try {
+            jdbc.update(INSERT_DEAD_LETTER, log.getUsername(), log.getAction(), log.getEntity(), log.getEntityId(),
+                    log.getTimestamp() == null ? null : Timestamp.valueOf(log.getTimestamp()), cause.toString());
+            logger.error("Audit event kept in audit_dead_letters: user={} action={} entity={} entityId={}",
+                    log.getUsername(), log.getAction(), log.getEntity(), log.getEntityId(), cause);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            deadLetters.error("user={} action={} entity={} entityId={} timestamp={}",
+                    log.getUsername(), log.getAction(), log.getEntity(), log.getEntityId(), log.getTimestamp(), cause);
+        }
+    }
+
+    private void runLoop() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        int failures = 0;
+        while (running || !buffer.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    AuditLog first = buffer.poll(500, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                }
+                writeBatch(batch);
+                batch.clear();
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                if (++failures < maxAttempts) {
+                    // Keep the batch and retry; the events belong to committed changes
+                    logger.warn("Audit batch of {} failed (attempt {}), retrying", batch.size(), failures, e);
+                    sleepQuietly();
+                } else {
+                    // Likely a bad row rather than an outage: isolate it
+                    logger.error("Audit batch of {} failed {} times, writing row by row", batch.size(), failures, e);
+                    writeRowByRow(batch);
+                    batch.clear();
+                    failures = 0;
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeOrSplit(batch);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::runLoop, "audit-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Anything left (writer gave up or timed out) is flushed here
+        List<AuditLog> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            writeOrSplit(rest.subList(from, Math.min(rest.size(), from + batchSize)));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started early and stopped late, after the web server has stopped taking requests.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,107 @@
+package com.pies.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pies.common.AfterCommit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded, expiry-aware Caffeine caches used by {@link JwtAuthFilter}.
+ * <p>
+ * Verified tokens are kept until their JWT expiry so the HS256 signature is only
+ * checked once per token. Resolved principals are kept for a short TTL so the
+ * therapist lookup is not repeated on every request; account changes evict them.
+ * <p>
+ * A principal loaded before an account change commits must not be cached after
+ * that change's eviction. Each username has a generation that eviction bumps
+ * before invalidating; a load that sees the generation move while it ran is
+ * returned to its request but not kept.
+ */
+@Component
+public class AuthCache {
+
+    /**
+     * Result of a successful signature and expiry check. Therapist id, role and
+     * version are null for tokens issued before they were added as claims.
+     */
+    public record VerifiedToken(String username, Long therapistId, String role, Long version,
+                                long expiresAtMillis) {
+    }
+
+    private final Cache<String, VerifiedToken> tokens;
+    private final Cache<String, UserDetails> principals;
+    // Only usernames that were ever evicted have an entry; one per account at most
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public AuthCache(MeterRegistry registry,
+                     @Value("${auth.cache.max-tokens:10000}") int maxTokens,
+                     @Value("${auth.cache.max-principals:1000}") int maxPrincipals,
+                     @Value("${auth.cache.principal-ttl:5m}") Duration principalTtl) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxTokens)
+                .expireAfter(Expiry.creating((String token, VerifiedToken v) ->
+                        Duration.ofMillis(Math.max(0, v.expiresAtMillis() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxPrincipals)
+                .expireAfterWrite(principalTtl)
+                .recordStats()
+                .build();
+        meters(registry, "token", tokens);
+        meters(registry, "principal", principals);
+    }
+
+    /**
+     * Returns the cached verification result for a token, or runs the verifier and caches its result.
+     */
+    public VerifiedToken verifiedToken(String token, Function<String, VerifiedToken> verifier) {
+        return tokens.get(token, verifier);
+    }
+
+    /**
+     * Returns the cached principal for a username, or loads it and caches it for the configured TTL.
+     */
+    public UserDetails principal(String username, Function<String, UserDetails> loader) {
+        long generation = generations.getOrDefault(username, 0L);
+        UserDetails details = principals.get(username, loader);
+        if (generations.getOrDefault(username, 0L) != generation) {
+            // Evicted while loading: the load may predate the change
+            principals.asMap().remove(username, details);
+        }
+        return details;
+    }
+
+    /**
+     * Drops the cached principal for a username once the current transaction commits,
+     * so the next request reloads the account state from the database.
+     */
+    public void evictUser(String username) {
+        if (username == null) return;
+        AfterCommit.run(() -> {
+            generations.merge(username, 1L, Long::sum);
+            principals.invalidate(username);
+        });
+    }
+
+    private static void meters(MeterRegistry registry, String name, Cache<?, ?> cache) {
+        FunctionCounter.builder("auth.cache.requests", cache, c -> c.stats().hitCount())
+                .tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.cache.requests", cache, c -> c.stats().missCount())
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("auth.cache.evictions", cache, c -> c.stats().evictionCount())
+                .tag("cache", name).register(registry);
+        Gauge.builder("auth.cache.size", cache, Cache::estimatedSize).tag("cache", name).register(registry);
+    }
+}
@@ -4,21 +4,40 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwt;
     private final TherapistDetailsService detailsSvc;
+    private final AuthCache cache;
+    private final TokenRevocationList revocations;
+    private final boolean stateless;
+
+    /**
+     * @param stateless when true, the Authentication is built from token claims alone and
+     *                  checked against the revocation list instead of reloading the therapist
+     */
+    public JwtAuthFilter(JwtService jwt,
+                         TherapistDetailsService detailsSvc,
+                         AuthCache cache,
+                         TokenRevocationList revocations,
+                         @Value("${jwt.stateless:false}") boolean stateless) {
+        this.jwt = jwt;
+        this.detailsSvc = detailsSvc;
+        this.cache = cache;
+        this.revocations = revocations;
+        this.stateless = stateless;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -29,13 +48,36 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String auth = request.getHeader("Authorization");
         if (auth != null && auth.startsWith("Bearer ")) {
             String token = auth.substring(7);
-            String userId = jwt.extractUsername(token);
-            var details = detailsSvc.loadUserByUsername(userId);
+            var verified = cache.verifiedToken(token, this::verify);
+
+            if (stateless) {
+                // Tokens without id/version claims, or with a revoked version, stay unauthenticated
+                if (verified.therapistId() != null && verified.version() != null
+                        && revocations.isCurrent(verified.therapistId(), verified.version())) {
+                    var authToken = new UsernamePasswordAuthenticationToken(
+                            verified.username(), null, List.of(new SimpleGrantedAuthority(verified.role())));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
+            } else {
+                var details = cache.principal(verified.username(), detailsSvc::loadUserByUsername);
 
-            var authToken = new UsernamePasswordAuthenticationToken(
-                    details, null, details.getAuthorities());
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+                var authToken = new UsernamePasswordAuthenticationToken(
+                        details, null, details.getAuthorities());
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
         }
         chain.doFilter(request, response);
     }
+
+    private AuthCache.VerifiedToken verify(String token) {
+        var claims = jwt.parse(token);
+        Number tid = claims.get(JwtService.CLAIM_THERAPIST_ID, Number.class);
+        Number ver = claims.get(JwtService.CLAIM_VERSION, Number.class);
+        return new AuthCache.VerifiedToken(
+                claims.getSubject(),
+                tid == null ? null : tid.longValue(),
+                claims.get(JwtService.CLAIM_ROLE, String.class),
+                ver == null ? null : ver.longValue(),
+                claims.getExpiration().getTime());
+    }
 }
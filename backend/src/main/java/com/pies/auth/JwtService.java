@@ -1,5 +1,7 @@
 package com.pies.auth;
 
+import com.pies.therapist.model.Therapist;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -16,12 +18,17 @@ public class JwtService {
     private final Key key;
     private static final long EXP_MILLIS = 3600_000; // 1 hour
 
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_THERAPIST_ID = "tid";
+    public static final String CLAIM_VERSION = "ver";
+
     public JwtService(@Value("${jwt.secret}") String secret) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
     }
 
     /**
-     * Generate JWT string (HS256)
+     * Generate JWT string (HS256).
+     * Therapist tokens also carry id and token version for the claims-only auth mode.
      */
     public String generate(UserDetails user) {
         long expAt = System.currentTimeMillis() + EXP_MILLIS;
@@ -31,22 +38,46 @@ public class JwtService {
                 .map(a -> a.getAuthority())
                 .orElse("UNKNOWN");
 
+        if (user instanceof Therapist t && t.getId() != null) {
+            return generate(user.getUsername(), role, t.getId(), t.getTokenVersion());
+        }
         return Jwts.builder()
                 .setSubject(user.getUsername())
-                .claim("role", role)
+                .claim(CLAIM_ROLE, role)
                 .setExpiration(new Date(expAt))
                 .signWith(key, SignatureAlgorithm.HS256) // <─ 0.11.x signature
                 .compact();
     }
 
+    /**
+     * Generate a therapist JWT from already known claims (used by refresh, no DB read)
+     */
+    public String generate(String username, String role, Long therapistId, long tokenVersion) {
+        long expAt = System.currentTimeMillis() + EXP_MILLIS;
+        return Jwts.builder()
+                .setSubject(username)
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_THERAPIST_ID, therapistId)
+                .claim(CLAIM_VERSION, tokenVersion)
+                .setExpiration(new Date(expAt))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     /**
      * Extract subject (username)
      */
     public String extractUsername(String token) {
+        return parse(token).getSubject();
+    }
+
+    /**
+     * Verify signature and expiry, returning the token claims
+     */
+    public Claims parse(String token) {
         return Jwts.parser()
                 .setSigningKey(key)
                 .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+                .getBody();
     }
 }
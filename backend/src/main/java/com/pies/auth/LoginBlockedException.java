@@ -0,0 +1,26 @@
+package com.pies.auth;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * HTTP 429 raised while a username or client IP is in login backoff.
+ * Carries a Retry-After header with the remaining wait in seconds.
+ */
+public class LoginBlockedException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public LoginBlockedException(long retryAfterMillis) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Too many failed login attempts, retry later");
+        this.retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pies.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks failed logins per username and per client IP and applies exponential
+ * backoff once a key exceeds its free attempts. An IP gets many more free
+ * attempts than a username, since a clinic's staff can share one address.
+ * <p>
+ * An attempt is counted when it starts, in the same compare-and-set that checks
+ * the backoff (on an immutable snapshot per key), so parallel attempts cannot
+ * all slip past the check before the first failure is recorded. A successful
+ * login gives its attempt back.
+ * <p>
+ * Keys live in a Caffeine cache bounded by {@code auth.login.max-tracked-keys}
+ * and dropped after {@code auth.login.forget-after} without use, so a run of
+ * fresh usernames costs amortized constant time per login and cannot grow the
+ * map past its bound.
+ */
+@Component
+public class LoginThrottle {
+
+    private record State(int failures, long blockedUntilMillis, long lastFailureMillis) {
+    }
+
+    private final Cache<String, AtomicReference<State>> states;
+    private final int freeAttempts;
+    private final int ipFreeAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long forgetAfterMillis;
+
+    public LoginThrottle(@Value("${auth.login.free-attempts:3}") int freeAttempts,
+                         @Value("${auth.login.ip-free-attempts:50}") int ipFreeAttempts,
+                         @Value("${auth.login.backoff-base:1s}") Duration baseDelay,
+                         @Value("${auth.login.backoff-max:15m}") Duration maxDelay,
+                         @Value("${auth.login.forget-after:1h}") Duration forgetAfter,
+                         @Value("${auth.login.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.freeAttempts = freeAttempts;
+        this.ipFreeAttempts = ipFreeAttempts;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.forgetAfterMillis = forgetAfter.toMillis();
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(forgetAfter)
+                .build();
+    }
+
+    /**
+     * Starts a login attempt for this username and IP, counting it as a failure
+     * until {@link #recordSuccess} says otherwise.
+     *
+     * @return 0 if the attempt may proceed, otherwise the milliseconds the caller
+     * must wait; a refused attempt is not counted
+     */
+    public long tryAcquire(String username, String ip) {
+        long now = System.currentTimeMillis();
+        long wait = acquire(userKey(username), freeAttempts, now);
+        if (wait > 0) return wait;
+        wait = acquire(ipKey(ip), ipFreeAttempts, now);
+        if (wait > 0) {
+            release(userKey(username), freeAttempts);
+        }
+        return wait;
+    }
+
+    /**
+     * A successful login clears the username's history and gives the IP its
+     * attempt back; the rest of the IP history is kept so a stuffing run cannot
+     * reset itself with one valid account.
+     */
+    public void recordSuccess(String username, String ip) {
+        states.invalidate(userKey(username));
+        release(ipKey(ip), ipFreeAttempts);
+    }
+
+    /**
+     * Gives back an attempt whose password was never checked (e.g. the verification
+     * pool was saturated), for both the username and the IP.
+     */
+    public void release(String username, String ip) {
+        release(userKey(username), freeAttempts);
+        release(ipKey(ip), ipFreeAttempts);
+    }
+
+    /**
+     * Checks the backoff and counts the attempt in one atomic update.
+     */
+    private long acquire(String key, int free, long now) {
+        AtomicReference<State> ref = states.get(key, k -> new AtomicReference<>(new State(0, 0, 0)));
+        State prev;
+        State next;
+        do {
+            prev = ref.get();
+            if (prev.blockedUntilMillis() > now) {
+                return prev.blockedUntilMillis() - now;
+            }
+            int failures = now - prev.lastFailureMillis() > forgetAfterMillis ? 1 : prev.failures() + 1;
+            long blockedUntil = failures > free ? now + delayFor(failures - free) : 0;
+            next = new State(failures, blockedUntil, now);
+        } while (!ref.compareAndSet(prev, next));
+        return 0;
+    }
+
+    private void release(String key, int free) {
+        AtomicReference<State> ref = states.getIfPresent(key);
+        if (ref == null) return;
+        ref.updateAndGet(prev -> {
+            int failures = Math.max(0, prev.failures() - 1);
+            return new State(failures, failures > free ? prev.blockedUntilMillis() : 0, prev.lastFailureMillis());
+        });
+    }
+
+    private long delayFor(int excess) {
+        int shift = Math.min(excess - 1, 30);
+        return Math.min(maxDelayMillis, baseDelayMillis << shift);
+    }
+
+    // Tracked keys after pending evictions, for tests
+    long trackedKeys() {
+        states.cleanUp();
+        return states.estimatedSize();
+    }
+
+    private static String userKey(String username) {
+        return "u:" + (username == null ? "" : username.toLowerCase());
+    }
+
+    private static String ipKey(String ip) {
+        return "ip:" + ip;
+    }
+}
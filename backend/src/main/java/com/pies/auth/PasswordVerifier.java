@@ -0,0 +1,74 @@
+package com.pies.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hash checks on a small dedicated pool so a burst of logins
+ * cannot occupy the servlet worker threads. When the queue is full the check is
+ * rejected immediately with HTTP 429 instead of waiting.
+ */
+@Component
+public class PasswordVerifier {
+
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer verificationTimer;
+    private final Counter rejections;
+
+    public PasswordVerifier(PasswordEncoder encoder,
+                            MeterRegistry registry,
+                            @Value("${auth.login.verify-threads:2}") int threads,
+                            @Value("${auth.login.verify-queue:32}") int queueCapacity) {
+        this.encoder = encoder;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-verify-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.verificationTimer = Timer.builder("auth.password.verification").register(registry);
+        this.rejections = Counter.builder("auth.password.rejections").register(registry);
+        Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+    }
+
+    /**
+     * Checks a raw password against its stored hash on the verification pool.
+     *
+     * @throws ResponseStatusException with 429 when the pool is saturated
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> verificationTimer.record(() -> encoder.matches(rawPassword, encodedPassword)),
+                    executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent logins, retry shortly");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
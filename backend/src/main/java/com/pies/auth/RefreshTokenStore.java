@@ -0,0 +1,218 @@
+package com.pies.auth;
+
+import com.pies.common.AfterCommit;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store of refresh tokens with sliding expiry.
+ * <p>
+ * Only the SHA-256 hash of a token is kept, mapped to the therapist it was
+ * issued for. Each refresh rotates the token (the old one stops working) and
+ * pushes the expiry forward, so renewing a session costs one hash lookup and
+ * one JWT signature. Expired entries are removed by a timing wheel swept once
+ * per tick. Tokens do not survive a restart; users then log in again.
+ * <p>
+ * Storing, rotating and revoking all of a therapist's tokens update that
+ * therapist's index entry atomically, so a token stored during a revocation
+ * cannot outlive it.
+ */
+@Component
+public class RefreshTokenStore {
+
+    /**
+     * What a refresh token resolves to; enough to sign a new access token without a DB read.
+     */
+    public record Session(Long therapistId, String username, TherapistRole role, String authority,
+                          long tokenVersion, long expiresAtMillis) {
+    }
+
+    /**
+     * A freshly issued raw token together with its session.
+     */
+    public record Issued(String token, Session session) {
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> byTherapist = new ConcurrentHashMap<>();
+    private final List<Queue<String>> wheel;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final ScheduledExecutorService sweeper;
+    private long lastSweptTick;
+
+    public RefreshTokenStore(MeterRegistry registry,
+                             @Value("${auth.refresh.ttl:14d}") Duration ttl,
+                             @Value("${auth.refresh.sweep-tick:1m}") Duration tick,
+                             @Value("${auth.refresh.wheel-size:512}") int wheelSize) {
+        this.ttlMillis = ttl.toMillis();
+        this.tickMillis = tick.toMillis();
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.lastSweptTick = System.currentTimeMillis() / tickMillis;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "refresh-token-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleAtFixedRate(this::sweep, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        Gauge.builder("auth.refresh.sessions", sessions, Map::size).register(registry);
+    }
+
+    /**
+     * Issues a new refresh token for a therapist.
+     */
+    public Issued issue(Therapist t) {
+        String authority = t.getAuthorities().stream().findFirst().map(a -> a.getAuthority()).orElse("UNKNOWN");
+        Session session = new Session(t.getId(), t.getUsername(), t.getRole(), authority, t.getTokenVersion(),
+                System.currentTimeMillis() + ttlMillis);
+        String token = newToken();
+        byTherapist.compute(session.therapistId(), (id, hashes) -> index(hashes, hash(token), session));
+        return new Issued(token, session);
+    }
+
+    /**
+     * Consumes a refresh token and issues its replacement with a renewed expiry.
+     *
+     * @return the replacement, or null if the token is unknown, already used or expired
+     */
+    public Issued rotate(String token) {
+        String hash = hash(token);
+        Session old = sessions.get(hash);
+        if (old == null) {
+            return null;
+        }
+        String next = newToken();
+        Session[] rotated = new Session[1];
+        byTherapist.compute(old.therapistId(), (id, hashes) -> {
+            // Lost to a concurrent rotation or revocation
+            if (!sessions.remove(hash, old)) return hashes;
+            if (hashes != null) hashes.remove(hash);
+            if (old.expiresAtMillis() <= System.currentTimeMillis()) return hashes;
+            rotated[0] = new Session(old.therapistId(), old.username(), old.role(), old.authority(),
+                    old.tokenVersion(), System.currentTimeMillis() + ttlMillis);
+            return index(hashes, hash(next), rotated[0]);
+        });
+        return rotated[0] == null ? null : new Issued(next, rotated[0]);
+    }
+
+    /**
+     * Revokes a single refresh token (logout).
+     */
+    public void revoke(String token) {
+        String hash = hash(token);
+        Session s = sessions.remove(hash);
+        if (s != null) {
+            unindex(s.therapistId(), hash);
+        }
+    }
+
+    /**
+     * Revokes every refresh token of a therapist once the current transaction commits.
+     */
+    public void revokeAll(Long therapistId) {
+        AfterCommit.run(() -> byTherapist.computeIfPresent(therapistId, (id, hashes) -> {
+            hashes.forEach(sessions::remove);
+            return null;
+        }));
+    }
+
+    /**
+     * Adds a session to a therapist's index entry; call inside {@code byTherapist.compute}
+     * so it is atomic with revocation.
+     */
+    private Set<String> index(Set<String> hashes, String hash, Session session) {
+        Set<String> out = hashes != null ? hashes : ConcurrentHashMap.newKeySet();
+        sessions.put(hash, session);
+        out.add(hash);
+        wheel.get(slot(session.expiresAtMillis() / tickMillis)).add(hash);
+        return out;
+    }
+
+    private static String newToken() {
+        byte[] raw = new byte[32];
+        RANDOM.nextBytes(raw);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    private void unindex(Long therapistId, String hash) {
+        Set<String> hashes = byTherapist.get(therapistId);
+        if (hashes != null) {
+            hashes.remove(hash);
+        }
+    }
+
+    /**
+     * Advances the wheel to the current tick. Each slot holds hashes whose expiry
+     * falls on that slot in some round; entries from a later round are re-queued,
+     * rotated or revoked entries are simply dropped.
+     */
+    synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+        long firstTick = Math.max(lastSweptTick + 1, currentTick - wheel.size() + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            Queue<String> bucket = wheel.get(slot(tick));
+            List<String> keep = new ArrayList<>();
+            for (int n = bucket.size(); n > 0; n--) {
+                String hash = bucket.poll();
+                if (hash == null) break;
+                Session s = sessions.get(hash);
+                if (s == null) continue;
+                if (s.expiresAtMillis() <= now) {
+                    if (sessions.remove(hash, s)) {
+                        unindex(s.therapistId(), hash);
+                    }
+                } else {
+                    keep.add(hash);
+                }
+            }
+            bucket.addAll(keep);
+        }
+        lastSweptTick = currentTick;
+    }
+
+    private int slot(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.size());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
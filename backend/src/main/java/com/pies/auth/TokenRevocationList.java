@@ -0,0 +1,62 @@
+package com.pies.auth;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pies.common.AfterCommit;
+import com.pies.therapist.repository.TherapistRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-memory record of the token version each therapist's tokens must carry.
+ * <p>
+ * Used by the claims-only auth mode ({@code jwt.stateless=true}): a token is
+ * accepted only if its {@code ver} claim equals the current version, which is a
+ * single cache lookup. A therapist's version is loaded from the database when
+ * first seen and re-read once {@code auth.revocation.ttl} has passed, so changes
+ * made on another node (or directly in the database) apply within that time.
+ * On this node {@code TherapistService} pushes changes here on commit.
+ */
+@Component
+public class TokenRevocationList {
+
+    /**
+     * Marker version for deactivated accounts: no token matches it.
+     */
+    static final long REVOKED = Long.MIN_VALUE;
+
+    private final LoadingCache<Long, Long> currentVersions;
+
+    public TokenRevocationList(TherapistRepository repo,
+                               @Value("${auth.revocation.ttl:30s}") Duration ttl,
+                               @Value("${auth.revocation.max-entries:10000}") long maxEntries) {
+        this.currentVersions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build(id -> repo.findActiveTokenVersion(id).orElse(REVOKED));
+    }
+
+    /**
+     * Whether a token issued for {@code therapistId} with {@code version} is still valid.
+     */
+    public boolean isCurrent(long therapistId, long version) {
+        long current = currentVersions.get(therapistId);
+        return current != REVOKED && current == version;
+    }
+
+    /**
+     * Record a new version for a therapist once the current transaction commits.
+     */
+    public void updateVersion(long therapistId, long version) {
+        AfterCommit.run(() -> currentVersions.put(therapistId, version));
+    }
+
+    /**
+     * Reject every token of a therapist once the current transaction commits.
+     */
+    public void revokeAll(long therapistId) {
+        AfterCommit.run(() -> currentVersions.put(therapistId, REVOKED));
+    }
+}
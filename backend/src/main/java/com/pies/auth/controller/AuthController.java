@@ -1,9 +1,16 @@
 package com.pies.auth.controller;
 
+import com.pies.auth.AuthCache;
 import com.pies.auth.JwtService;
+import com.pies.auth.LoginBlockedException;
+import com.pies.auth.LoginThrottle;
+import com.pies.auth.PasswordVerifier;
+import com.pies.auth.RefreshTokenStore;
+import com.pies.search.NameIndex;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.model.TherapistRole;
 import com.pies.therapist.repository.TherapistRepository;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -17,6 +24,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Authentication endpoints for login and registration.
  * In development profile, login auto-registers unknown users.
@@ -29,14 +38,23 @@ public class AuthController {
     private final JwtService jwt;
     private final PasswordEncoder encoder;
     private final Environment env;
+    private final AuthCache authCache;
+    private final PasswordVerifier passwordVerifier;
+    private final LoginThrottle throttle;
+    private final RefreshTokenStore refreshTokens;
+    private final NameIndex nameIndex;
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
     // Request body for login
     record LoginReq(@NotBlank String username, @NotBlank String password) {
     }
 
-    // Login response includes token and role
-    record LoginResp(String token, TherapistRole role) {
+    // Login response includes token, role and a refresh token for /auth/refresh
+    record LoginResp(String token, TherapistRole role, String refreshToken) {
+    }
+
+    // Request body for refresh and logout
+    record RefreshReq(@NotBlank String refreshToken) {
     }
 
     // Request body for user registration
@@ -50,10 +68,11 @@ public class AuthController {
 
     /**
      * User login endpoint.
-     * In dev profile, missing users are auto-registered. In prod, password is always verified.
+     * In dev profile, missing users are auto-registered. In prod, password is always verified
+     * on the bounded verification pool, and repeated failures per username or IP are backed off (429).
      */
     @PostMapping("/login")
-    public LoginResp login(@RequestBody LoginReq req) {
+    public CompletableFuture<LoginResp> login(@RequestBody LoginReq req, HttpServletRequest request) {
         Therapist u = repo.findByUsername(req.username()).orElse(null);
 
         // In dev: auto-register user if not found
@@ -68,19 +87,75 @@ public class AuthController {
                 u.setRole(TherapistRole.ADMIN);
                 u.setActiveStatus(true);
                 u = repo.save(u);
+                nameIndex.therapistChanged(u);
             }
-            return new LoginResp(jwt.generate(u), u.getRole());
+            return CompletableFuture.completedFuture(issue(u));
         }
 
+        String ip = request.getRemoteAddr();
+        long retryAfter = throttle.tryAcquire(req.username(), ip);
+        if (retryAfter > 0)
+            throw new LoginBlockedException(retryAfter);
+
         // In prod: must exist, be active, and password must match
-        if (u == null || !u.isActiveStatus())
+        if (u == null || !u.isActiveStatus()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found or inactive");
+        }
 
-        if (!encoder.matches(req.password(), u.getPasswordHash()))
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
+        Therapist user = u;
+        CompletableFuture<Boolean> check;
+        try {
+            check = passwordVerifier.matches(req.password(), user.getPasswordHash());
+        } catch (ResponseStatusException e) {
+            // Verification pool saturated: the password was never checked, so the attempt does not count
+            throttle.release(req.username(), ip);
+            throw e;
+        }
+        return check.thenApply(ok -> {
+            if (!ok) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
+            }
+            throttle.recordSuccess(req.username(), ip);
+            logger.info("Login successful for {} with role {}", user.getUsername(), user.getRole());
+            return issue(user);
+        });
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a rotated refresh token.
+     * Costs one hash lookup and one signature; no password check or DB read.
+     */
+    @PostMapping("/refresh")
+    public LoginResp refresh(@RequestBody RefreshReq req) {
+        var issued = refreshTokens.rotate(req.refreshToken());
+        if (issued == null)
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired refresh token");
+        var s = issued.session();
+        String token = jwt.generate(s.username(), s.authority(), s.therapistId(), s.tokenVersion());
+        return new LoginResp(token, s.role(), issued.token());
+    }
+
+    /**
+     * Revokes the given refresh token.
+     */
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@RequestBody RefreshReq req) {
+        refreshTokens.revoke(req.refreshToken());
+    }
+
+    /**
+     * Admin-only: revokes every refresh token of a therapist.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping("/refresh-tokens/{therapistId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void revokeAll(@PathVariable Long therapistId) {
+        refreshTokens.revokeAll(therapistId);
+    }
 
-        logger.info("Login successful for {} with role {}", u.getUsername(), u.getRole());
-        return new LoginResp(jwt.generate(u), u.getRole());
+    private LoginResp issue(Therapist u) {
+        return new LoginResp(jwt.generate(u), u.getRole(), refreshTokens.issue(u).token());
     }
 
     /**
@@ -97,7 +172,10 @@ public class AuthController {
         t.setEmail(req.email());
         t.setRole(req.role() == null ? TherapistRole.JUNIOR : req.role());
         t.setActiveStatus(true);
-        return repo.save(t);
+        Therapist saved = repo.save(t);
+        authCache.evictUser(saved.getUsername());
+        nameIndex.therapistChanged(saved);
+        return saved;
     }
 
     /**
@@ -1,13 +1,18 @@
 package com.pies.common;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.persistence.EntityNotFoundException;
 
+import java.time.format.DateTimeParseException;
+
 /**
  * Global API Exception Handler for standardized error responses.
  */
@@ -44,6 +49,24 @@ public class ApiExceptionHandler {
         return new ApiError(409, "Data Integrity Violation: " + detailedMessage);
     }
 
+    /**
+     * Handles requests that clash with the current state, such as overlapping bookings (HTTP 409).
+     */
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiError handleStateConflict(ConflictException ex) {
+        return new ApiError(409, ex.getMessage());
+    }
+
+    /**
+     * Handles concurrent edits caught by the version check at commit (HTTP 409).
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiError handleStaleUpdate(OptimisticLockingFailureException ex) {
+        return new ApiError(409, "The record was changed by someone else; reload it and retry");
+    }
+
     /**
      * Handles invalid arguments from client requests (HTTP 400).
      */
@@ -53,6 +76,26 @@ public class ApiExceptionHandler {
         return new ApiError(400, ex.getMessage());
     }
 
+    /**
+     * Handles malformed date-time request parameters (HTTP 400).
+     */
+    @ExceptionHandler(DateTimeParseException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleBadDateTime(DateTimeParseException ex) {
+        return new ApiError(400, "Invalid date-time '" + ex.getParsedString()
+                + "'; expected ISO format, e.g. 2025-01-31T09:30");
+    }
+
+    /**
+     * Handles explicit status errors (401, 429, ...) keeping their status and headers.
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ApiError> handleStatus(ResponseStatusException ex) {
+        return ResponseEntity.status(ex.getStatusCode())
+                .headers(ex.getHeaders())
+                .body(new ApiError(ex.getStatusCode().value(), ex.getReason()));
+    }
+
     /**
      * Handles all uncaught exceptions (HTTP 500).
      */
@@ -0,0 +1,12 @@
+package com.pies.common;
+
+/**
+ * The request clashes with the current state (e.g. a booking overlaps another);
+ * mapped to 409 by {@link ApiExceptionHandler}. An expected outcome, not an error.
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
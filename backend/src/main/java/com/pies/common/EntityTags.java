@@ -0,0 +1,90 @@
+package com.pies.common;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Strong entity tags for versioned records, {@code "<id>-<version>"} with the
+ * version taken from the {@code @Version} column, followed by the versions of
+ * the records the response embeds ({@code "<id>-<version>.<v1>.<v2>"}), so an
+ * edit to an embedded patient or therapist changes the tag too. A GET can be
+ * revalidated from the versions alone, without loading the rows. A PUT must
+ * carry {@code If-Match} (428 without it) and is refused with 412 once someone
+ * else has saved the record itself, so concurrent edits fail instead of
+ * overwriting each other.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Entity tag, without quotes. A missing embedded record counts as version 0.
+     */
+    public static String of(Long id, long version, Long... embedded) {
+        StringBuilder sb = new StringBuilder().append(id).append('-').append(version);
+        for (Long v : embedded) {
+            sb.append('.').append(v == null ? 0L : v);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Entity tag from a version query row: the record's own version first, then
+     * the embedded ones, in the order {@link #of} takes them.
+     */
+    public static String fromRow(Long id, Object[] versions) {
+        Long[] embedded = new Long[versions.length - 1];
+        for (int i = 1; i < versions.length; i++) {
+            embedded[i - 1] = (Long) versions[i];
+        }
+        return of(id, (Long) versions[0], embedded);
+    }
+
+    /**
+     * Version an {@code If-Match} header pins the record {@code id} to, or null for
+     * {@code *}, which explicitly overwrites whatever is current. Only a single
+     * strong tag is understood. Only the record's own version is compared: edits to
+     * the records it embeds do not block an update of this one.
+     *
+     * @throws ResponseStatusException 428 if the header is absent, 412 if the tag is
+     *                                 weak, malformed or names another record
+     */
+    public static Long requiredVersion(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED,
+                    "If-Match is required; send the ETag of the record as last read");
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) return null;
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw stale();
+        }
+        tag = tag.substring(1, tag.length() - 1);
+        int dash = tag.lastIndexOf('-');
+        if (dash <= 0 || !tag.substring(0, dash).equals(String.valueOf(id))) {
+            throw stale();
+        }
+        String versions = tag.substring(dash + 1);
+        int dot = versions.indexOf('.');
+        try {
+            return Long.parseLong(dot < 0 ? versions : versions.substring(0, dot));
+        } catch (NumberFormatException e) {
+            throw stale();
+        }
+    }
+
+    /**
+     * @throws ResponseStatusException 412 unless {@code required} is null or the current version
+     */
+    public static void checkVersion(Long required, long current) {
+        if (required != null && required != current) {
+            throw stale();
+        }
+    }
+
+    private static ResponseStatusException stale() {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                "The record was changed since it was read; reload it and retry");
+    }
+}
@@ -0,0 +1,60 @@
+package com.pies.common;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for the {@code ?after=} listing mode. Rows are read in id order with a
+ * seek predicate ({@code id > :after}) and one extra row to detect the next page,
+ * so neither an OFFSET nor a {@code count(*)} is needed.
+ */
+public final class Keyset {
+
+    public static final int MAX_SIZE = 500;
+
+    private Keyset() {
+    }
+
+    /**
+     * Id of the last row seen, or 0 for a missing or empty cursor (first page).
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0L;
+        try {
+            return Long.parseLong(Cursor.decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static int size(int requested) {
+        return Math.max(1, Math.min(requested, MAX_SIZE));
+    }
+
+    /**
+     * First {@code size + 1} rows, without a count query when the repository returns a List.
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, size + 1);
+    }
+
+    /**
+     * Ids of an ascending id list that come after the cursor. Capped at twice what
+     * one page needs; the slack covers rows soft-deleted since the list was built.
+     */
+    public static List<Long> idsAfter(List<Long> sortedIds, long afterId, int size) {
+        return sortedIds.stream().filter(id -> id > afterId).limit(2L * (size + 1)).toList();
+    }
+
+    public static <T> KeysetSlice<T> slice(List<T> rows, int size, Function<T, Long> id) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? Cursor.encode(id.apply(content.get(content.size() - 1))) : null;
+        return new KeysetSlice<>(content, size, hasNext, next);
+    }
+}
@@ -0,0 +1,10 @@
+package com.pies.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) listing. Pass {@code nextCursor} back as
+ * {@code ?after=} to get the next page; it is null on the last page.
+ */
+public record KeysetSlice<T>(List<T> content, int size, boolean hasNext, String nextCursor) {
+}
@@ -0,0 +1,95 @@
+package com.pies.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The attributes a resource offers to {@code ?fields=}: each JSON property name
+ * maps to a JPQL select expression over the resource's from clause. Only names
+ * listed here can be requested, so columns that must never leave the server
+ * (password hashes, token versions) are simply not listed.
+ */
+public final class SparseFields {
+
+    private final String label;
+    private final String from;
+    private final String root;
+    private final Map<String, String> columns;
+
+    private SparseFields(String label, String from, String root, Map<String, String> columns) {
+        this.label = label;
+        this.from = from;
+        this.root = root;
+        this.columns = columns;
+    }
+
+    /**
+     * @param label name of the resource in error messages, e.g. "SOAP note"
+     * @param from  JPQL from clause, e.g. "SoapNote s left join s.patient p"
+     * @param root  alias of the resource's entity in {@code from}; it needs
+     *              {@code id} and {@code activeStatus} attributes
+     */
+    public static SparseFields of(String label, String from, String root) {
+        return new SparseFields(label, from, root, Map.of());
+    }
+
+    /**
+     * A copy that also offers {@code name}, selected as {@code expression}.
+     */
+    public SparseFields field(String name, String expression) {
+        Map<String, String> next = new LinkedHashMap<>(columns);
+        next.put(name, expression);
+        return new SparseFields(label, from, root, Collections.unmodifiableMap(next));
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String from() {
+        return from;
+    }
+
+    public String root() {
+        return root;
+    }
+
+    /**
+     * Requested names, in request order and without repeats.
+     *
+     * @throws IllegalArgumentException if none is given or one is not offered
+     */
+    public List<String> parse(String fields) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String part : fields == null ? new String[0] : fields.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) continue;
+            if (!columns.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "'; allowed: "
+                        + String.join(", ", columns.keySet()));
+            }
+            names.add(name);
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("fields must name at least one of: "
+                    + String.join(", ", columns.keySet()));
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Select list for {@code names}, led by the root id (used for cursors).
+     */
+    String select(List<String> names) {
+        StringBuilder sb = new StringBuilder(root).append(".id");
+        for (String name : names) {
+            sb.append(", ").append(columns.get(name));
+        }
+        return sb.toString();
+    }
+}
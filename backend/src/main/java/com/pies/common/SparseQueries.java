@@ -0,0 +1,215 @@
+package com.pies.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.TypedQuery;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Reads for {@code ?fields=}: one tuple query selecting only the requested
+ * attributes of active rows, written to the response with a JSON generator
+ * while the rows are read, so neither entities nor the full row ever load.
+ * Pages come out shaped like the regular list responses: {@code content} plus
+ * the page totals, or {@code hasNext}/{@code nextCursor} in keyset mode.
+ * <p>
+ * Requests are validated before the first byte is written, so errors still map
+ * to a status code.
+ * <p>
+ * A resource takes part by declaring its {@link SparseFields} (the repository's
+ * {@code SPARSE} constant) and a service method turning the search query into the
+ * {@link Filter} its regular list applies ({@code sparseFilter}); its controller
+ * maps {@code ?fields=} to {@link #writeList} and {@link #writeOne}.
+ */
+@Service
+@RequiredArgsConstructor
+public class SparseQueries {
+
+    private final EntityManager em;
+    private final ObjectMapper mapper;
+
+    /**
+     * Extra restriction on top of {@code activeStatus = true}.
+     *
+     * @param where  JPQL appended to the where clause, starting with " and", or
+     *               null when nothing can match
+     * @param params its named parameters
+     */
+    public record Filter(String where, Map<String, Object> params) {
+
+        public static final Filter ALL = new Filter("", Map.of());
+        public static final Filter NONE = new Filter(null, Map.of());
+
+        public static Filter of(String where, String name, Object value) {
+            return new Filter(where, Map.of(name, value));
+        }
+    }
+
+    /**
+     * Answers a list request with {@code ?fields=}: keyset mode when {@code after}
+     * is given, page mode otherwise.
+     *
+     * @param filter turns the search query {@code q} into the resource's restriction
+     */
+    @Transactional(readOnly = true)
+    public void writeList(SparseFields r, String fields, Function<String, Filter> filter, String q,
+                          String after, int page, int size, HttpServletResponse response) throws IOException {
+        Filter f = filter.apply(q);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (after != null) {
+            writeSlice(r, fields, f, after, Keyset.size(size), response.getOutputStream());
+        } else {
+            writePage(r, fields, f, PageRequest.of(page, size), response.getOutputStream());
+        }
+    }
+
+    /**
+     * Answers a detail request with {@code ?fields=}.
+     *
+     * @throws EntityNotFoundException if there is no such active row
+     */
+    @Transactional(readOnly = true)
+    public void writeOne(SparseFields r, String fields, Long id, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        writeOne(r, fields, id, response.getOutputStream());
+    }
+
+    /**
+     * Writes the requested attributes of one active row as a JSON object.
+     *
+     * @throws EntityNotFoundException if there is no such active row
+     */
+    @Transactional(readOnly = true)
+    public void writeOne(SparseFields r, String fields, Long id, OutputStream out) throws IOException {
+        List<String> names = r.parse(fields);
+        List<Object[]> rows = query(r, names, Filter.of(" and " + r.root() + ".id = :id", "id", id), "")
+                .setMaxResults(1)
+                .getResultList();
+        if (rows.isEmpty()) {
+            throw new EntityNotFoundException(r.label() + " " + id + " not found");
+        }
+        try (JsonGenerator gen = mapper.createGenerator(out)) {
+            row(gen, names, rows.get(0));
+        }
+    }
+
+    /**
+     * Writes a page of matching rows in id order, with the same totals as a
+     * regular page. The count query is skipped when the page itself settles it.
+     */
+    @Transactional(readOnly = true)
+    public void writePage(SparseFields r, String fields, Filter filter, Pageable pageable, OutputStream out)
+            throws IOException {
+        List<String> names = r.parse(fields);
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        try (JsonGenerator gen = mapper.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("content");
+            int n = 0;
+            if (filter.where() != null) {
+                TypedQuery<Object[]> q = query(r, names, filter, " order by " + r.root() + ".id")
+                        .setFirstResult((int) offset)
+                        .setMaxResults(size);
+                try (Stream<Object[]> rows = q.getResultStream()) {
+                    for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); n++) {
+                        row(gen, names, it.next());
+                    }
+                }
+            }
+            gen.writeEndArray();
+            long total = filter.where() == null ? 0
+                    : (n > 0 || offset == 0) && n < size ? offset + n
+                    : count(r, filter);
+            int totalPages = (int) Math.ceil((double) total / size);
+            gen.writeNumberField("totalElements", total);
+            gen.writeNumberField("totalPages", totalPages);
+            gen.writeNumberField("number", pageable.getPageNumber());
+            gen.writeNumberField("size", size);
+            gen.writeNumberField("numberOfElements", n);
+            gen.writeBooleanField("first", pageable.getPageNumber() == 0);
+            gen.writeBooleanField("last", pageable.getPageNumber() + 1 >= totalPages);
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Keyset mode of {@link #writePage}: the rows after the cursor in id order,
+     * shaped like a {@link KeysetSlice}, without a count query.
+     */
+    @Transactional(readOnly = true)
+    public void writeSlice(SparseFields r, String fields, Filter filter, String after, int size, OutputStream out)
+            throws IOException {
+        List<String> names = r.parse(fields);
+        long afterId = Keyset.afterId(after);
+        try (JsonGenerator gen = mapper.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("content");
+            boolean hasNext = false;
+            Long last = null;
+            if (filter.where() != null) {
+                TypedQuery<Object[]> q = query(r, names, filter,
+                        " and " + r.root() + ".id > :after order by " + r.root() + ".id")
+                        .setParameter("after", afterId)
+                        .setMaxResults(size + 1);
+                try (Stream<Object[]> rows = q.getResultStream()) {
+                    int n = 0;
+                    for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); n++) {
+                        Object[] row = it.next();
+                        if (n == size) {
+                            hasNext = true;
+                            break;
+                        }
+                        row(gen, names, row);
+                        last = (Long) row[0];
+                    }
+                }
+            }
+            gen.writeEndArray();
+            gen.writeNumberField("size", size);
+            gen.writeBooleanField("hasNext", hasNext);
+            gen.writeStringField("nextCursor", hasNext ? Cursor.encode(last) : null);
+            gen.writeEndObject();
+        }
+    }
+
+    private TypedQuery<Object[]> query(SparseFields r, List<String> names, Filter filter, String tail) {
+        String jpql = "select " + r.select(names) + " from " + r.from()
+                + " where " + r.root() + ".activeStatus = true" + filter.where() + tail;
+        TypedQuery<Object[]> q = em.createQuery(jpql, Object[].class);
+        filter.params().forEach(q::setParameter);
+        return q;
+    }
+
+    private long count(SparseFields r, Filter filter) {
+        TypedQuery<Long> q = em.createQuery("select count(" + r.root() + ") from " + r.from()
+                + " where " + r.root() + ".activeStatus = true" + filter.where(), Long.class);
+        filter.params().forEach(q::setParameter);
+        return q.getSingleResult();
+    }
+
+    // Column 0 is the root id, selected for cursors; requested values follow in order
+    private static void row(JsonGenerator gen, List<String> names, Object[] row) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < names.size(); i++) {
+            gen.writeFieldName(names.get(i));
+            gen.writeObject(row[i + 1]);
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,49 @@
+package com.pies.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hit ratio of the Hibernate second-level and query cache regions, as the
+ * {@code hibernate.cache.hit.ratio} gauge tagged by region. Raw hit and miss
+ * counts are published by Spring Boot's Hibernate metrics under
+ * {@code hibernate.second.level.cache.requests} and
+ * {@code hibernate.cache.query.requests}.
+ */
+@Component
+public class HibernateCacheMetrics {
+
+    static final List<String> REGIONS = List.of("therapists", "patients", "active-therapists");
+
+    public HibernateCacheMetrics(EntityManagerFactory emf, MeterRegistry registry) {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONS) {
+            // Query regions appear on first use; until then there is no ratio
+            Gauge.builder("hibernate.cache.hit.ratio", stats, s -> {
+                        CacheRegionStatistics r = s.getCacheRegionStatistics(region);
+                        return r == null ? Double.NaN : ratio(r.getHitCount(), r.getMissCount());
+                    })
+                    .tag("region", region)
+                    .register(registry);
+        }
+        Gauge.builder("hibernate.cache.hit.ratio", stats,
+                        s -> ratio(s.getSecondLevelCacheHitCount(), s.getSecondLevelCacheMissCount()))
+                .tag("region", "all")
+                .register(registry);
+        Gauge.builder("hibernate.cache.query.hit.ratio", stats,
+                        s -> ratio(s.getQueryCacheHitCount(), s.getQueryCacheMissCount()))
+                .register(registry);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+}
@@ -0,0 +1,12 @@
+package com.pies.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (audit archiving, reconciliation, ...).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
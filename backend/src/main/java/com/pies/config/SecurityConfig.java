@@ -46,11 +46,14 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/auth/login").permitAll()
+                        .requestMatchers("/auth/login", "/auth/refresh", "/auth/logout").permitAll()
+                        // Calendar apps cannot send a JWT; the feed secret in the path authorizes
+                        .requestMatchers(HttpMethod.GET, "/appointments/feed/*/calendar.ics").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                         .requestMatchers(HttpMethod.POST, "/auth/register").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/therapists/**").hasRole("ADMIN")
                         .requestMatchers("/therapists/**").hasAnyRole("ADMIN", "SENIOR")
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
                 .httpBasic(Customizer.withDefaults());
@@ -88,6 +91,8 @@ public class SecurityConfig {
         corsProperties.getAllowedOrigins().forEach(config::addAllowedOrigin);
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
+        // Edit pages read the ETag of a GET and send it back as If-Match on PUT
+        config.addExposedHeader("ETag");
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
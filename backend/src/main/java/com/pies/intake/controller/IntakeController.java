@@ -1,5 +1,9 @@
 package com.pies.intake.controller;
 
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.intake.model.IntakeForm;
 import com.pies.intake.model.IntakeFormHealthHistory;
 import com.pies.intake.payload.IntakeRequest;
@@ -9,17 +13,23 @@ import com.pies.patient.model.Patient;
 import com.pies.patient.payload.PatientRequest;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.repository.TherapistRepository;
+import com.pies.intake.payload.IntakeSummary;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +41,7 @@ import java.util.Optional;
 public class IntakeController {
 
     private final IntakeService svc;
+    private final SparseQueries sparse;
     private final TherapistRepository therapistRepository;
     private final IntakeRepository intakeFormRepository;
 
@@ -145,22 +156,35 @@ public class IntakeController {
         ///return ResponseEntity.ok(saved);
     }
 
+    /**
+     * Update an intake form. Requires {@code If-Match} (428 without it); a stale tag gets 412.
+     */
     @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
     @PutMapping("{id}")
-    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody @Valid IntakeForm f) {
-        svc.update(id, f);
-        return ResponseEntity.ok(new SimpleResponse("Intake form updated successfully"));
+    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody @Valid IntakeForm f,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        IntakeForm saved = svc.update(id, f, EntityTags.requiredVersion(ifMatch, id));
+        return ResponseEntity.ok()
+                .eTag(svc.etag(saved))
+                .body(new SimpleResponse("Intake form updated successfully"));
     }
 
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping("{id}")
-    public IntakeForm get(@PathVariable Long id) {
-        return svc.findById(id);
+    public ResponseEntity<IntakeForm> get(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(svc.etag(id))) {
+            return null;
+        }
+        IntakeForm found = svc.findById(id);
+        return ResponseEntity.ok()
+                .eTag(svc.etag(found))
+                .cacheControl(CacheControl.noCache())
+                .body(found);
     }
 
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping
-    public Page<IntakeForm> list(
+    public Page<IntakeSummary> list(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String q) {
@@ -168,6 +192,43 @@ public class IntakeController {
         return svc.findActive(q, pageable);
     }
 
+    /**
+     * Keyset mode: pass {@code after} (empty for the first page), then the returned
+     * {@code nextCursor}. Rows come in id order and no count query is run.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = {"after", "!fields"})
+    public KeysetSlice<IntakeSummary> listAfter(@RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String q) {
+        return svc.findActiveAfter(q, after, Keyset.size(size));
+    }
+
+    /**
+     * Only the attributes named in {@code fields}, e.g. {@code ?fields=id,patientName,dateSubmitted},
+     * in page mode or, with {@code after}, keyset mode. Unknown names get 400.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = "fields")
+    public void listFields(@RequestParam String fields,
+                           @RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(required = false) String q,
+                           @RequestParam(required = false) String after,
+                           HttpServletResponse response) throws IOException {
+        sparse.writeList(IntakeRepository.SPARSE, fields, svc::sparseFilter, q, after, page, size, response);
+    }
+
+    /**
+     * One record with only the attributes named in {@code fields}.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(value = "{id}", params = "fields")
+    public void getFields(@PathVariable Long id, @RequestParam String fields, HttpServletResponse response)
+            throws IOException {
+        sparse.writeOne(IntakeRepository.SPARSE, fields, id, response);
+    }
+
     @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
     @DeleteMapping("{id}")
     public ResponseEntity<SimpleResponse> delete(@PathVariable Long id) {
@@ -59,6 +59,10 @@ public class IntakeForm {
 
     private boolean activeStatus = true;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     public IntakeFormHealthHistory getHealthHistory() {
         return healthHistory;
     }
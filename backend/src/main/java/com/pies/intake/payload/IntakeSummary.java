@@ -0,0 +1,9 @@
+package com.pies.intake.payload;
+
+import java.time.LocalDate;
+
+/**
+ * Intake form without its answers or health history.
+ */
+public record IntakeSummary(Long id, Long patientId, String patientName, LocalDate dateSubmitted, Long therapistId) {
+}
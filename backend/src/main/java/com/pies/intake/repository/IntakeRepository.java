@@ -1,24 +1,101 @@
 package com.pies.intake.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.pies.common.SparseFields;
 import com.pies.intake.model.IntakeForm;
+import com.pies.intake.payload.IntakeSummary;
 
 
 public interface IntakeRepository extends JpaRepository<IntakeForm, Long> {
 
-    Page<IntakeForm> findByActiveStatusTrue(Pageable pageable);
-    
+    /**
+     * List columns only, with the patient's name joined in. Leaves out the eagerly
+     * fetched health history, so a page is a single select.
+     */
+    String SUMMARY = "select new com.pies.intake.payload.IntakeSummary(i.id, p.id, concat(p.firstName, ' ', p.lastName)," +
+            " i.dateSubmitted, t.id)" +
+            " from IntakeForm i left join i.patient p left join i.therapist t";
+
+    String NAME_MATCH = " and (lower(p.firstName) like lower(concat('%', :q, '%'))" +
+            " or lower(p.lastName) like lower(concat('%', :q, '%')))";
+
+    /**
+     * Attributes offered to {@code ?fields=}. The health history is a separate
+     * record and is not among them.
+     */
+    SparseFields SPARSE = SparseFields.of("IntakeForm with id",
+                    "IntakeForm i left join i.patient p left join i.therapist t", "i")
+            .field("id", "i.id")
+            .field("patientId", "p.id")
+            .field("patientName", "concat(p.firstName, ' ', p.lastName)")
+            .field("therapistId", "t.id")
+            .field("therapistName", "concat(t.firstName, ' ', t.lastName)")
+            .field("dateSubmitted", "i.dateSubmitted")
+            .field("practicedYogaBefore", "i.practicedYogaBefore")
+            .field("lastPracticedDate", "i.lastPracticedDate")
+            .field("yogaFrequency", "i.yogaFrequency")
+            .field("yogaStyles", "i.yogaStyles")
+            .field("yogaStyleOther", "i.yogaStyleOther")
+            .field("yogaGoals", "i.yogaGoals")
+            .field("yogaGoalsOther", "i.yogaGoalsOther")
+            .field("yogaGoalsExplanation", "i.yogaGoalsExplanation")
+            .field("yogaInterests", "i.yogaInterests")
+            .field("yogaInterestsOther", "i.yogaInterestsOther")
+            .field("activityLevel", "i.activityLevel")
+            .field("stressLevel", "i.stressLevel")
+            .field("version", "i.version");
+
     Optional<IntakeForm> findTopByPatientIdAndActiveStatusTrueOrderByIdDesc(Long patientId);
 
-    @Query("select i from IntakeForm i where i.activeStatus=true" +
-            " and (:q is null or lower(i.patient.firstName) like lower(concat('%', :q, '%'))" +
-            " or lower(i.patient.lastName) like lower(concat('%', :q, '%'))) ")
-    Page<IntakeForm> search(@Param("q") String q, Pageable pageable);
-}
\ No newline at end of file
+    @Query(value = SUMMARY + " where i.activeStatus = true",
+            countQuery = "select count(i) from IntakeForm i where i.activeStatus = true")
+    Page<IntakeSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + " where i.activeStatus = true" + NAME_MATCH,
+            countQuery = "select count(i) from IntakeForm i left join i.patient p where i.activeStatus = true" + NAME_MATCH)
+    Page<IntakeSummary> searchSummaries(@Param("q") String q, Pageable pageable);
+
+    @Query(value = SUMMARY + " where p.id in :patientIds and i.activeStatus = true",
+            countQuery = "select count(i) from IntakeForm i where i.patient.id in :patientIds and i.activeStatus = true")
+    Page<IntakeSummary> findSummariesByPatientIds(@Param("patientIds") Collection<Long> patientIds, Pageable pageable);
+
+    // Keyset (?after=) variants: seek on id, first page of size + 1, no count query
+
+    @Query(SUMMARY + " where i.activeStatus = true and i.id > :after order by i.id")
+    List<IntakeSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where p.id in :patientIds and i.activeStatus = true and i.id > :after order by i.id")
+    List<IntakeSummary> findSummariesByPatientIdsAfter(@Param("patientIds") Collection<Long> patientIds,
+            @Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where i.activeStatus = true" + NAME_MATCH + " and i.id > :after order by i.id")
+    List<IntakeSummary> searchSummariesAfter(@Param("q") String q, @Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where p.id = :patientId and i.activeStatus = true order by i.id desc")
+    List<IntakeSummary> findSummariesByPatient(@Param("patientId") Long patientId, Pageable pageable);
+
+    /**
+     * Versions of the row, its patient, the patient's therapist and its own therapist
+     */
+    @Query("select i.version, p.version, pt.version, t.version from IntakeForm i left join i.patient p"
+            + " left join p.therapist pt left join i.therapist t where i.id = :id and i.activeStatus = true")
+    List<Object[]> findVersions(@Param("id") Long id);
+
+    /**
+     * Moves the form's version when only its health history changed, since the
+     * history is served inside the form.
+     */
+    @Modifying
+    @Query("update IntakeForm i set i.version = i.version + 1 where i.id = :id")
+    int bumpVersion(@Param("id") Long id);
+}
@@ -1,21 +1,34 @@
 package com.pies.intake.service;
 
 import com.pies.audit.service.AuditLogService;
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.intake.model.IntakeForm;
+import com.pies.intake.payload.IntakeSummary;
 import com.pies.intake.model.IntakeFormHealthHistory;
 import com.pies.intake.repository.IntakeFormHealthHistoryRepository;
 import com.pies.intake.repository.IntakeRepository;
+import com.pies.live.LiveEvent;
+import com.pies.patient.model.Patient;
 import com.pies.patient.repository.PatientRepository;
+import com.pies.patient.service.PatientPicker;
+import com.pies.search.NameIndex;
+import com.pies.therapist.model.Therapist;
 import com.pies.therapist.repository.TherapistRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * Service class for managing intake forms and their health history.
  * Handles CRUD operations, patient linking, health history association, and
@@ -31,6 +44,9 @@ public class IntakeService {
     private final IntakeFormHealthHistoryRepository healthHistoryRepository;
     private final PatientRepository patientRepository;
     private final TherapistRepository therapistRepository;
+    private final NameIndex nameIndex;
+    private final PatientPicker patientPicker;
+    private final ApplicationEventPublisher events;
 
     /**
      * Creates and persists an intake form and its associated health history.
@@ -50,7 +66,8 @@ public class IntakeService {
 
         try {
             // Save Patient first if needed
-            patientRepository.save(form.getPatient());
+            nameIndex.patientChanged(patientRepository.save(form.getPatient()));
+            patientPicker.patientsChanged();
 
             // Save IntakeForm
             IntakeForm savedForm = intakeRepository.save(form);
@@ -61,6 +78,7 @@ public class IntakeService {
                 healthHistoryRepository.save(history);
             }
 
+            events.publishEvent(submitted(savedForm));
             return savedForm;
         } catch (Exception e) {
             logger.error(">>> ERROR during save: {}", e.getMessage(), e);
@@ -100,6 +118,7 @@ public class IntakeService {
     public IntakeForm save(IntakeForm form) {
         IntakeForm saved = intakeRepository.save(form);
         auditLogService.record("CREATE", "IntakeForm", saved.getId());
+        events.publishEvent(submitted(saved));
         return saved;
     }
 
@@ -111,11 +130,14 @@ public class IntakeService {
      *
      * @param id   the ID of the intake form to update
      * @param form the IntakeForm data to update
+     * @param requiredVersion version the client last read (from If-Match), or
+     *                        null for If-Match: *
      * @return the updated IntakeForm entity
      */
     @Transactional
-    public IntakeForm update(Long id, IntakeForm form) {
+    public IntakeForm update(Long id, IntakeForm form, Long requiredVersion) {
         IntakeForm entity = findById(id);
+        EntityTags.checkVersion(requiredVersion, entity.getVersion());
         if (form.getPracticedYogaBefore() != null) {
             entity.setPracticedYogaBefore(form.getPracticedYogaBefore());
         }
@@ -144,6 +166,30 @@ public class IntakeService {
         return entity;
     }
 
+    /**
+     * Entity tag of an active intake form, covering the embedded patient and
+     * therapists, read without loading the rows.
+     *
+     * @throws EntityNotFoundException if not found or inactive
+     */
+    public String etag(Long id) {
+        return intakeRepository.findVersions(id).stream().findFirst()
+                .map(v -> EntityTags.fromRow(id, v))
+                .orElseThrow(() -> new EntityNotFoundException("IntakeForm with id " + id + " not found"));
+    }
+
+    /**
+     * Entity tag of a loaded intake form; matches {@link #etag(Long)}.
+     */
+    public String etag(IntakeForm form) {
+        Patient patient = form.getPatient();
+        Therapist patientTherapist = patient == null ? null : patient.getTherapist();
+        return EntityTags.of(form.getId(), form.getVersion(),
+                patient == null ? null : patient.getVersion(),
+                patientTherapist == null ? null : patientTherapist.getVersion(),
+                form.getTherapist() == null ? null : form.getTherapist().getVersion());
+    }
+
     /**
      * Retrieves a page of active intake forms, optionally filtered by search query.
      *
@@ -151,11 +197,43 @@ public class IntakeService {
      * @param pageable pagination information
      * @return a page of IntakeForm entities
      */
-    public Page<IntakeForm> findActive(String query, Pageable pageable) {
+    public Page<IntakeSummary> findActive(String query, Pageable pageable) {
         if (query == null || query.isBlank()) {
-            return intakeRepository.findByActiveStatusTrue(pageable);
+            return intakeRepository.findSummaries(pageable);
         }
-        return intakeRepository.search(query, pageable);
+        return nameIndex.patients(query, false)
+                .map(ids -> ids.isEmpty() ? Page.<IntakeSummary>empty(pageable)
+                        : intakeRepository.findSummariesByPatientIds(ids, pageable))
+                .orElseGet(() -> intakeRepository.searchSummaries(query, pageable));
+    }
+
+    /**
+     * Keyset mode of {@link #findActive}: the page after the cursor in id order, without a count query.
+     */
+    public KeysetSlice<IntakeSummary> findActiveAfter(String q, String after, int size) {
+        long afterId = Keyset.afterId(after);
+        Pageable limit = Keyset.limit(size);
+        List<IntakeSummary> rows;
+        if (q == null || q.isBlank()) {
+            rows = intakeRepository.findSummariesAfter(afterId, limit);
+        } else {
+            rows = nameIndex.patients(q, false)
+                    .map(ids -> ids.isEmpty() ? List.<IntakeSummary>of()
+                            : intakeRepository.findSummariesByPatientIdsAfter(ids, afterId, limit))
+                    .orElseGet(() -> intakeRepository.searchSummariesAfter(q, afterId, limit));
+        }
+        return Keyset.slice(rows, size, IntakeSummary::id);
+    }
+
+    /**
+     * The restriction {@link #findActive} applies for {@code q}, for {@code ?fields=} reads.
+     */
+    public SparseQueries.Filter sparseFilter(String q) {
+        if (q == null || q.isBlank()) return SparseQueries.Filter.ALL;
+        return nameIndex.patients(q, false)
+                .map(ids -> ids.isEmpty() ? SparseQueries.Filter.NONE
+                        : SparseQueries.Filter.of(" and p.id in :ids", "ids", ids))
+                .orElseGet(() -> SparseQueries.Filter.of(IntakeRepository.NAME_MATCH, "q", q));
     }
 
     /**
@@ -184,11 +262,24 @@ public class IntakeService {
 
     /**
      * Saves only a health history record (utility method).
+     * Bumps the version of the form it belongs to, so the form's entity tag changes.
      *
      * @param healthHistory the IntakeFormHealthHistory entity to save
      */
     @Transactional
     public void saveHealthHistory(IntakeFormHealthHistory healthHistory) {
         healthHistoryRepository.save(healthHistory);
+        IntakeForm form = healthHistory.getIntakeForm();
+        if (form != null && form.getId() != null) {
+            intakeRepository.bumpVersion(form.getId());
+        }
+    }
+
+    private static LiveEvent submitted(IntakeForm form) {
+        Patient patient = form.getPatient();
+        Therapist therapist = form.getTherapist() != null ? form.getTherapist()
+                : patient != null ? patient.getTherapist() : null;
+        return new LiveEvent(LiveEvent.Type.INTAKE_SUBMITTED, form.getId(),
+                therapist == null ? null : therapist.getId(), patient == null ? null : patient.getId());
     }
 }
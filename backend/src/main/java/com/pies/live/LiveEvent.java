@@ -0,0 +1,20 @@
+package com.pies.live;
+
+/**
+ * Small change notification pushed to connected clients; they refetch what they
+ * need instead of reloading whole lists.
+ *
+ * @param type        what happened
+ * @param entityId    id of the appointment, intake form or SOAP note
+ * @param therapistId therapist the change belongs to, if any; used for subscriber filters
+ * @param patientId   patient the change belongs to, if any
+ */
+public record LiveEvent(Type type, Long entityId, Long therapistId, Long patientId) {
+
+    public enum Type {
+        APPOINTMENT_BOOKED,
+        APPOINTMENT_CANCELLED,
+        INTAKE_SUBMITTED,
+        SOAP_NOTE_CREATED
+    }
+}
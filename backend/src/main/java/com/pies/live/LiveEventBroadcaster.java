@@ -0,0 +1,231 @@
+package com.pies.live;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pies.appointment.event.AppointmentChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans committed changes out to Server-Sent Event subscribers.
+ * <p>
+ * Each subscriber is an async {@link SseEmitter}, so an open stream holds no
+ * servlet thread. Events are serialized once on one dispatch thread, whose
+ * bounded queue drops the oldest event when publishers outrun it, and handed to
+ * each matching subscriber's own bounded queue. A sender task per subscriber
+ * drains that queue onto the connection, so a slow client only holds up its own
+ * events; a subscriber whose queue fills up, or whose connection fails, is
+ * dropped and resyncs on reconnect. A periodic comment line keeps idle
+ * connections open through proxies and detects dead clients.
+ */
+@Component
+public class LiveEventBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventBroadcaster.class);
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Long therapistId;
+        final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+        // Set while a sender task owns the queue
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Long therapistId, int capacity) {
+            this.emitter = emitter;
+            this.therapistId = therapistId;
+            this.pending = new ArrayBlockingQueue<>(capacity);
+        }
+
+        boolean wants(LiveEvent e) {
+            return therapistId == null || therapistId.equals(e.therapistId());
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor dispatcher;
+    private final ThreadPoolExecutor senders;
+    private final ScheduledThreadPoolExecutor heartbeat;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final int subscriberQueue;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Counter dropped;
+
+    public LiveEventBroadcaster(ObjectMapper mapper,
+                                MeterRegistry registry,
+                                @Value("${live.timeout:30m}") Duration timeout,
+                                @Value("${live.heartbeat:20s}") Duration heartbeatInterval,
+                                @Value("${live.max-subscribers:1000}") int maxSubscribers,
+                                @Value("${live.queue:1024}") int queueCapacity,
+                                @Value("${live.subscriber-queue:64}") int subscriberQueue) {
+        this.mapper = mapper;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        this.subscriberQueue = subscriberQueue;
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "live-events");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        AtomicLong senderThreads = new AtomicLong();
+        // At most one task per subscriber, so a client stuck in a write holds only its own thread
+        this.senders = new ThreadPoolExecutor(0, maxSubscribers, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "live-events-sender-" + senderThreads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.heartbeat = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "live-events-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(() -> dispatcher.execute(this::ping), interval, interval, TimeUnit.MILLISECONDS);
+        this.dropped = Counter.builder("live.subscribers.dropped").register(registry);
+        Gauge.builder("live.subscribers", subscribers, List::size).register(registry);
+        Gauge.builder("live.queue.depth", dispatcher, e -> e.getQueue().size()).register(registry);
+    }
+
+    /**
+     * Opens a stream of events, all of them or only those of one therapist.
+     *
+     * @throws ResponseStatusException with 503 when the subscriber limit is reached
+     */
+    public SseEmitter subscribe(Long therapistId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live subscribers, retry shortly");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber s = new Subscriber(emitter, therapistId, subscriberQueue);
+        emitter.onCompletion(() -> subscribers.remove(s));
+        emitter.onTimeout(() -> subscribers.remove(s));
+        emitter.onError(ex -> subscribers.remove(s));
+        subscribers.add(s);
+        return emitter;
+    }
+
+    /**
+     * Queues an event for delivery. Call after commit; see the listeners below.
+     */
+    public void publish(LiveEvent e) {
+        dispatcher.execute(() -> deliver(e));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(LiveEvent e) {
+        publish(e);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        LiveEvent.Type type = e.type() == AppointmentChangedEvent.Type.CREATED
+                ? LiveEvent.Type.APPOINTMENT_BOOKED
+                : LiveEvent.Type.APPOINTMENT_CANCELLED;
+        publish(new LiveEvent(type, e.appointmentId(), e.therapistId(), e.patientId()));
+    }
+
+    private void deliver(LiveEvent e) {
+        if (subscribers.isEmpty()) return;
+        String json;
+        try {
+            json = mapper.writeValueAsString(e);
+        } catch (JsonProcessingException ex) {
+            logger.warn("Could not serialize live event {}", e, ex);
+            return;
+        }
+        String id = Long.toString(sequence.incrementAndGet());
+        for (Subscriber s : subscribers) {
+            if (!s.wants(e)) continue;
+            offer(s, SseEmitter.event().id(id).name(e.type().name()).data(json));
+        }
+    }
+
+    private void ping() {
+        for (Subscriber s : subscribers) {
+            offer(s, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    /**
+     * Queues an event for one subscriber and makes sure a sender task is
+     * draining its queue. Never blocks: a full queue drops the subscriber.
+     */
+    private void offer(Subscriber s, SseEmitter.SseEventBuilder event) {
+        if (!s.pending.offer(event)) {
+            drop(s, null);
+            return;
+        }
+        if (s.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(s));
+            } catch (RejectedExecutionException ex) {
+                // Every sender thread is stuck on a dead client
+                drop(s, ex);
+            }
+        }
+    }
+
+    private void drain(Subscriber s) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = s.pending.poll()) != null) {
+                try {
+                    s.emitter.send(event);
+                } catch (IOException | IllegalStateException ex) {
+                    drop(s, ex);
+                    return;
+                }
+            }
+            s.draining.set(false);
+            // An event queued after the last poll but before the flag cleared
+        } while (!s.pending.isEmpty() && s.draining.compareAndSet(false, true));
+    }
+
+    private void drop(Subscriber s, Exception cause) {
+        if (!subscribers.remove(s)) return;
+        s.pending.clear();
+        if (cause == null) {
+            s.emitter.complete();
+        } else {
+            s.emitter.completeWithError(cause);
+        }
+        dropped.increment();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(s -> s.emitter.complete());
+    }
+}
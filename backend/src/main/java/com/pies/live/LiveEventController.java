@@ -0,0 +1,30 @@
+package com.pies.live;
+
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Tag(name = "Live events")
+@RestController
+@RequestMapping("/events")
+@RequiredArgsConstructor
+public class LiveEventController {
+
+    private final LiveEventBroadcaster broadcaster;
+
+    /**
+     * Server-Sent Events stream of bookings, cancellations, intake submissions and
+     * new SOAP notes, optionally only those of one therapist.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long therapistId) {
+        return broadcaster.subscribe(therapistId);
+    }
+}
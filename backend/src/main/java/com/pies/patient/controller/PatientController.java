@@ -1,8 +1,15 @@
 package com.pies.patient.controller;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,15 +18,29 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.patient.model.Patient;
+import com.pies.patient.payload.PatientChart;
+import com.pies.patient.payload.PatientMatch;
+import com.pies.patient.payload.PatientOption;
 import com.pies.patient.payload.PatientRequest;
+import com.pies.patient.payload.PatientSummary;
+import com.pies.patient.service.PatientChartService;
+import com.pies.patient.service.PatientPicker;
 import com.pies.patient.service.PatientService;
+import com.pies.patient.repository.PatientRepository;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
@@ -32,7 +53,13 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class PatientController {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_PICKER_RESULTS = 2000;
+
     private final PatientService svc;
+    private final SparseQueries sparse;
+    private final PatientChartService chartSvc;
+    private final PatientPicker picker;
 
     /**
      * Simple response structure for success messages.
@@ -51,33 +78,122 @@ public class PatientController {
     }
 
     /**
-     * Update an existing patient by ID.
+     * Update an existing patient by ID. Requires {@code If-Match} (428 without it);
+     * the update is refused (412) unless the tag is still the patient's current one.
+     * The new tag is returned.
      */
     @PutMapping("{id}")
-    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody @Valid PatientRequest req) {
-        svc.updateFromRequest(id, req);
-        return ResponseEntity.ok(new SimpleResponse("Patient updated successfully"));
+    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody @Valid PatientRequest req,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Patient saved = svc.updateFromRequest(id, req, EntityTags.requiredVersion(ifMatch, id));
+        return ResponseEntity.ok()
+                .eTag(svc.etag(saved))
+                .body(new SimpleResponse("Patient updated successfully"));
     }
 
     /**
-     * Get a patient by ID.
+     * Get a patient by ID. Honours {@code If-None-Match}, checked against the
+     * version column before the patient is loaded.
      */
     @GetMapping("{id}")
-    public Patient get(@PathVariable Long id) {
-        return svc.findById(id);
+    public ResponseEntity<Patient> get(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(svc.etag(id))) {
+            return null;
+        }
+        Patient p = svc.findById(id);
+        return ResponseEntity.ok()
+                .eTag(svc.etag(p))
+                .cacheControl(CacheControl.noCache())
+                .body(p);
+    }
+
+    /**
+     * Patient header, latest intake, recent SOAP notes and self-assessments and
+     * upcoming appointments in one call. Section load times are reported in the
+     * {@code Server-Timing} header.
+     */
+    @GetMapping("{id}/chart")
+    public ResponseEntity<PatientChart> chart(@PathVariable Long id) {
+        PatientChartService.Result result = chartSvc.load(id);
+        String timing = result.timings().entrySet().stream()
+                .map(e -> String.format(Locale.ROOT, "%s;dur=%.1f", e.getKey(), e.getValue()))
+                .collect(Collectors.joining(", "));
+        return ResponseEntity.ok().header("Server-Timing", timing).body(result.chart());
     }
 
     /**
      * List all active patients, with optional search and pagination.
      */
     @GetMapping
-    public Page<Patient> list(@RequestParam(defaultValue = "0") int page,
-                              @RequestParam(defaultValue = "10") int size,
-                              @RequestParam(required = false) String q) {
+    public Page<PatientSummary> list(@RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "10") int size,
+                                     @RequestParam(required = false) String q) {
         Pageable pageable = PageRequest.of(page, size);
         return svc.findActive(q, pageable);
     }
 
+    /**
+     * Keyset mode: pass {@code after} (empty for the first page), then the returned
+     * {@code nextCursor}. Rows come in id order and no count query is run.
+     */
+    @GetMapping(params = {"after", "!fields"})
+    public KeysetSlice<PatientSummary> listAfter(@RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String q) {
+        return svc.findActiveAfter(q, after, Keyset.size(size));
+    }
+
+    /**
+     * Only the attributes named in {@code fields}, e.g. {@code ?fields=id,firstName,lastName,cellPhoneNumber},
+     * in page mode or, with {@code after}, keyset mode. Unknown names get 400.
+     */
+    @GetMapping(params = "fields")
+    public void listFields(@RequestParam String fields,
+                           @RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(required = false) String q,
+                           @RequestParam(required = false) String after,
+                           HttpServletResponse response) throws IOException {
+        sparse.writeList(PatientRepository.SPARSE, fields, svc::sparseFilter, q, after, page, size, response);
+    }
+
+    /**
+     * One record with only the attributes named in {@code fields}.
+     */
+    @GetMapping(value = "{id}", params = "fields")
+    public void getFields(@PathVariable Long id, @RequestParam String fields, HttpServletResponse response)
+            throws IOException {
+        sparse.writeOne(PatientRepository.SPARSE, fields, id, response);
+    }
+
+    /**
+     * Typo-tolerant patient search, ranked by name similarity (best first).
+     */
+    @GetMapping("/search")
+    public List<PatientMatch> search(@RequestParam String q,
+                                     @RequestParam(defaultValue = "20") int limit) {
+        return svc.searchRanked(q, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
+    /**
+     * Active patients as (id, name, date of birth) for dropdowns, optionally those
+     * whose first or last name starts with {@code q}. Honours {@code If-None-Match};
+     * the tag changes whenever a patient is written.
+     */
+    @GetMapping("/picker")
+    public ResponseEntity<List<PatientOption>> picker(@RequestParam(required = false) String q,
+                                                      @RequestParam(defaultValue = "50") int limit,
+                                                      WebRequest request) {
+        PatientPicker.Snapshot snapshot = picker.snapshot();
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.find(q, Math.max(1, Math.min(limit, MAX_PICKER_RESULTS))));
+    }
+
     /**
      * Soft-delete a patient by ID.
      */
@@ -0,0 +1,20 @@
+package com.pies.patient.payload;
+
+import com.pies.appointment.payload.CalendarEntry;
+import com.pies.intake.payload.IntakeSummary;
+import com.pies.selfassessment.payload.SelfAssessmentSummary;
+import com.pies.soap.payload.SoapNoteSummary;
+
+import java.util.List;
+
+/**
+ * Everything the client page shows when a patient is opened, newest records
+ * first and each list capped by {@code patient.chart.limits.*}. Full records are
+ * fetched by id when opened.
+ */
+public record PatientChart(PatientSummary patient,
+                           IntakeSummary latestIntake,
+                           List<SoapNoteSummary> soapNotes,
+                           List<SelfAssessmentSummary> selfAssessments,
+                           List<CalendarEntry> upcomingAppointments) {
+}
@@ -0,0 +1,10 @@
+package com.pies.patient.payload;
+
+import java.time.LocalDate;
+
+/**
+ * One result of the ranked patient search; {@code score} is in [0, 1], higher is closer.
+ */
+public record PatientMatch(Long id, String firstName, String lastName, LocalDate dateOfBirth,
+                           String email, double score) {
+}
@@ -0,0 +1,9 @@
+package com.pies.patient.payload;
+
+import java.time.LocalDate;
+
+/**
+ * Entry of the patient picker: enough to tell namesakes apart.
+ */
+public record PatientOption(Long id, String name, LocalDate dateOfBirth) {
+}
@@ -0,0 +1,11 @@
+package com.pies.patient.payload;
+
+import java.time.LocalDate;
+
+/**
+ * Patient header fields with the assigned therapist flattened in.
+ */
+public record PatientSummary(Long id, String firstName, String lastName, LocalDate dateOfBirth,
+                             LocalDate dateCreated, String email, String cellPhoneNumber, Long therapistId,
+                             String therapistName) {
+}
@@ -1,19 +1,96 @@
 package com.pies.patient.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.pies.common.SparseFields;
 import com.pies.patient.model.Patient;
+import com.pies.patient.payload.PatientSummary;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
-    Page<Patient> findByActiveStatusTrue(Pageable pageable);
+    /**
+     * Header columns only, with the assigned therapist's name joined in, so a page is a single select
+     */
+    String SUMMARY = "select new com.pies.patient.payload.PatientSummary(p.id, p.firstName, p.lastName, p.dateOfBirth," +
+            " p.dateCreated, p.email, p.cellPhoneNumber, t.id, concat(t.firstName, ' ', t.lastName))" +
+            " from Patient p left join p.therapist t";
+
+    String NAME_MATCH = " and (lower(p.firstName) like lower(concat('%', :q, '%'))" +
+            " or lower(p.lastName) like lower(concat('%', :q, '%')))";
+
+    /**
+     * Attributes offered to {@code ?fields=}; the therapist comes as id and name
+     */
+    SparseFields SPARSE = SparseFields.of("Patient", "Patient p left join p.therapist t", "p")
+            .field("id", "p.id")
+            .field("firstName", "p.firstName")
+            .field("lastName", "p.lastName")
+            .field("dateOfBirth", "p.dateOfBirth")
+            .field("address", "p.address")
+            .field("city", "p.city")
+            .field("state", "p.state")
+            .field("zipCode", "p.zipCode")
+            .field("email", "p.email")
+            .field("homePhoneNumber", "p.homePhoneNumber")
+            .field("cellPhoneNumber", "p.cellPhoneNumber")
+            .field("workPhoneNumber", "p.workPhoneNumber")
+            .field("emergencyContactName", "p.emergencyContactName")
+            .field("emergencyContactPhone", "p.emergencyContactPhone")
+            .field("referredBy", "p.referredBy")
+            .field("dateCreated", "p.dateCreated")
+            .field("version", "p.version")
+            .field("therapistId", "t.id")
+            .field("therapistName", "concat(t.firstName, ' ', t.lastName)");
+
+    @Query(value = SUMMARY + " where p.activeStatus = true",
+            countQuery = "select count(p) from Patient p where p.activeStatus = true")
+    Page<PatientSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + " where p.activeStatus = true" + NAME_MATCH,
+            countQuery = "select count(p) from Patient p where p.activeStatus = true" + NAME_MATCH)
+    Page<PatientSummary> searchSummaries(@Param("q") String q, Pageable pageable);
+
+    @Query(value = SUMMARY + " where p.id in :ids and p.activeStatus = true",
+            countQuery = "select count(p) from Patient p where p.id in :ids and p.activeStatus = true")
+    Page<PatientSummary> findSummariesByIds(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+    /**
+     * Rows for the in-memory name index: id, firstName, lastName, activeStatus
+     */
+    @Query("select p.id, p.firstName, p.lastName, p.activeStatus from Patient p")
+    List<Object[]> findAllNames();
+
+    /**
+     * Rows for the patient picker: id, firstName, lastName, dateOfBirth of active patients
+     */
+    @Query("select p.id, p.firstName, p.lastName, p.dateOfBirth from Patient p where p.activeStatus = true")
+    List<Object[]> findPickerRows();
+
+    // Keyset (?after=) variants: seek on id, first page of size + 1, no count query
+
+    @Query(SUMMARY + " where p.activeStatus = true and p.id > :after order by p.id")
+    List<PatientSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where p.id in :ids and p.activeStatus = true order by p.id")
+    List<PatientSummary> findSummariesByIdsOrderById(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+    @Query(SUMMARY + " where p.activeStatus = true" + NAME_MATCH + " and p.id > :after order by p.id")
+    List<PatientSummary> searchSummariesAfter(@Param("q") String q, @Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where p.id = :id and p.activeStatus = true")
+    Optional<PatientSummary> findSummary(@Param("id") Long id);
 
-    @Query("select p from Patient p where p.activeStatus=true and " +
-            "(lower(p.firstName) like lower(concat('%', :q, '%')) " +
-            "or lower(p.lastName) like lower(concat('%', :q, '%')))")
-    Page<Patient> search(@Param("q") String q, Pageable pageable);
-}
\ No newline at end of file
+    /**
+     * Versions of an active patient and its therapist, for entity tags that need no full load
+     */
+    @Query("select p.version, t.version from Patient p left join p.therapist t where p.id = :id and p.activeStatus = true")
+    List<Object[]> findVersions(@Param("id") Long id);
+}
@@ -0,0 +1,144 @@
+package com.pies.patient.service;
+
+import com.pies.appointment.payload.CalendarEntry;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.intake.payload.IntakeSummary;
+import com.pies.intake.repository.IntakeRepository;
+import com.pies.patient.payload.PatientChart;
+import com.pies.patient.payload.PatientSummary;
+import com.pies.patient.repository.PatientRepository;
+import com.pies.selfassessment.payload.SelfAssessmentSummary;
+import com.pies.selfassessment.repository.SelfAssessmentRepository;
+import com.pies.soap.payload.SoapNoteSummary;
+import com.pies.soap.repository.SoapNoteRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Loads a patient's chart in one request.
+ * <p>
+ * Each section is a projection query run concurrently on a small dedicated pool,
+ * each in its own read-only transaction, so the chart costs roughly the slowest
+ * section rather than the sum. When the pool's queue is full a section runs on
+ * the request thread instead of being rejected.
+ */
+@Service
+public class PatientChartService {
+
+    /**
+     * The chart and how long each section took, in milliseconds.
+     */
+    public record Result(PatientChart chart, Map<String, Double> timings) {
+    }
+
+    private record Timed<T>(T value, double millis) {
+    }
+
+    private final PatientRepository patientRepo;
+    private final IntakeRepository intakeRepo;
+    private final SoapNoteRepository soapNoteRepo;
+    private final SelfAssessmentRepository selfAssessmentRepo;
+    private final AppointmentRepository appointmentRepo;
+    private final TransactionTemplate readOnlyTx;
+    private final ThreadPoolExecutor executor;
+    private final int soapNoteLimit;
+    private final int selfAssessmentLimit;
+    private final int appointmentLimit;
+
+    public PatientChartService(PatientRepository patientRepo,
+                               IntakeRepository intakeRepo,
+                               SoapNoteRepository soapNoteRepo,
+                               SelfAssessmentRepository selfAssessmentRepo,
+                               AppointmentRepository appointmentRepo,
+                               PlatformTransactionManager txManager,
+                               @Value("${patient.chart.threads:8}") int threads,
+                               @Value("${patient.chart.queue:64}") int queueCapacity,
+                               @Value("${patient.chart.limits.soap-notes:20}") int soapNoteLimit,
+                               @Value("${patient.chart.limits.self-assessments:20}") int selfAssessmentLimit,
+                               @Value("${patient.chart.limits.appointments:20}") int appointmentLimit) {
+        this.patientRepo = patientRepo;
+        this.intakeRepo = intakeRepo;
+        this.soapNoteRepo = soapNoteRepo;
+        this.selfAssessmentRepo = selfAssessmentRepo;
+        this.appointmentRepo = appointmentRepo;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "patient-chart-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.soapNoteLimit = soapNoteLimit;
+        this.selfAssessmentLimit = selfAssessmentLimit;
+        this.appointmentLimit = appointmentLimit;
+    }
+
+    public Result load(Long patientId) {
+        CompletableFuture<Timed<PatientSummary>> patient = section(() -> patientRepo.findSummary(patientId)
+                .orElseThrow(() -> new EntityNotFoundException("Patient " + patientId + " not found")));
+        CompletableFuture<Timed<List<IntakeSummary>>> intake = section(() ->
+                intakeRepo.findSummariesByPatient(patientId, PageRequest.of(0, 1)));
+        CompletableFuture<Timed<List<SoapNoteSummary>>> soapNotes = section(() ->
+                soapNoteRepo.findSummariesByPatient(patientId, PageRequest.of(0, soapNoteLimit)));
+        CompletableFuture<Timed<List<SelfAssessmentSummary>>> selfAssessments = section(() ->
+                selfAssessmentRepo.findSummariesByPatient(patientId, PageRequest.of(0, selfAssessmentLimit)));
+        LocalDateTime now = LocalDateTime.now();
+        CompletableFuture<Timed<List<CalendarEntry>>> appointments = section(() ->
+                appointmentRepo.findUpcomingForPatient(patientId, now, PageRequest.of(0, appointmentLimit)));
+
+        try {
+            CompletableFuture.allOf(patient, intake, soapNotes, selfAssessments, appointments).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+
+        Map<String, Double> timings = new LinkedHashMap<>();
+        timings.put("patient", patient.join().millis());
+        timings.put("intake", intake.join().millis());
+        timings.put("soap", soapNotes.join().millis());
+        timings.put("selfassessment", selfAssessments.join().millis());
+        timings.put("appointments", appointments.join().millis());
+        List<IntakeSummary> latest = intake.join().value();
+        PatientChart chart = new PatientChart(patient.join().value(),
+                latest.isEmpty() ? null : latest.get(0),
+                soapNotes.join().value(),
+                selfAssessments.join().value(),
+                appointments.join().value());
+        return new Result(chart, timings);
+    }
+
+    private <T> CompletableFuture<Timed<T>> section(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            T value = readOnlyTx.execute(status -> query.get());
+            return new Timed<>(value, (System.nanoTime() - started) / 1_000_000.0);
+        }, executor);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,188 @@
+package com.pies.patient.service;
+
+import com.pies.common.AfterCommit;
+import com.pies.patient.payload.PatientOption;
+import com.pies.patient.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Active patients as (id, name, date of birth) for pickers, with prefix lookup.
+ * <p>
+ * Each patient is filed under "first last" and "last first" in one sorted key
+ * array, so a prefix of either name is a binary search to the first key followed
+ * by a scan while keys still match. The array is rebuilt from one query on the
+ * first read after a patient write commits: {@link PatientService} bumps a
+ * generation counter, which also serves as the entity tag, so clients holding
+ * the current list get a 304. With {@code appointment.booking.cluster=true}
+ * other nodes' writes do not reach the counter; the list is then reloaded on
+ * every read and tagged by a hash of its contents.
+ */
+@Service
+public class PatientPicker {
+
+    /**
+     * One build of the picker; lookups and the tag of a response come from the same snapshot.
+     */
+    public static final class Snapshot {
+        private final long generation;
+        private final String etag;
+        private final List<PatientOption> options;
+        private final String[] keys;
+        private final int[] owners;
+
+        private Snapshot(long generation, String etag, List<PatientOption> options, String[] keys, int[] owners) {
+            this.generation = generation;
+            this.etag = etag;
+            this.options = options;
+            this.keys = keys;
+            this.owners = owners;
+        }
+
+        /**
+         * Entity tag, without quotes.
+         */
+        public String etag() {
+            return etag;
+        }
+
+        /**
+         * Up to {@code limit} patients whose first or last name (or "first last",
+         * "last first") starts with {@code prefix}, ignoring case, in key order.
+         * A blank prefix returns the first {@code limit} patients by name.
+         */
+        public List<PatientOption> find(String prefix, int limit) {
+            String p = normalize(prefix);
+            if (p.isEmpty()) {
+                return options.subList(0, Math.min(limit, options.size()));
+            }
+            List<PatientOption> out = new ArrayList<>(Math.min(limit, 16));
+            BitSet seen = new BitSet(options.size());
+            for (int i = lowerBound(keys, p); i < keys.length && keys[i].startsWith(p) && out.size() < limit; i++) {
+                int owner = owners[i];
+                if (!seen.get(owner)) {
+                    seen.set(owner);
+                    out.add(options.get(owner));
+                }
+            }
+            return out;
+        }
+    }
+
+    private record Key(String key, int owner) {
+    }
+
+    private final PatientRepository repo;
+    private final boolean cluster;
+    private final AtomicLong generation = new AtomicLong();
+    // The counter restarts with the process, so the tag carries the start time too
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile Snapshot snapshot;
+
+    public PatientPicker(PatientRepository repo,
+                         @Value("${appointment.booking.cluster:false}") boolean cluster) {
+        this.repo = repo;
+        this.cluster = cluster;
+    }
+
+    /**
+     * Marks the list stale once the current transaction commits.
+     */
+    public void patientsChanged() {
+        AfterCommit.run(generation::incrementAndGet);
+    }
+
+    public Snapshot snapshot() {
+        if (cluster) {
+            return build(-1);
+        }
+        Snapshot s = snapshot;
+        long g = generation.get();
+        if (s != null && s.generation == g) {
+            return s;
+        }
+        synchronized (this) {
+            s = snapshot;
+            // Read the generation before the rows: a write committing meanwhile bumps it again
+            g = generation.get();
+            if (s == null || s.generation != g) {
+                s = build(g);
+                snapshot = s;
+            }
+            return s;
+        }
+    }
+
+    private Snapshot build(long g) {
+        List<Object[]> rows = repo.findPickerRows();
+        List<PatientOption> options = new ArrayList<>(rows.size());
+        List<String[]> names = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            String first = row[1] == null ? "" : ((String) row[1]).trim();
+            String last = row[2] == null ? "" : ((String) row[2]).trim();
+            options.add(new PatientOption((Long) row[0], (first + " " + last).trim(), (LocalDate) row[3]));
+            names.add(new String[]{first, last});
+        }
+
+        // Options in "last first" order, so a blank prefix lists patients alphabetically
+        Integer[] order = new Integer[options.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing((Integer i) -> normalize(names.get(i)[1] + " " + names.get(i)[0]))
+                .thenComparing(i -> options.get(i).id()));
+        List<PatientOption> sorted = new ArrayList<>(options.size());
+        List<Key> entries = new ArrayList<>(2 * options.size());
+        for (Integer i : order) {
+            int owner = sorted.size();
+            sorted.add(options.get(i));
+            String[] n = names.get(i);
+            entries.add(new Key(normalize(n[0] + " " + n[1]), owner));
+            entries.add(new Key(normalize(n[1] + " " + n[0]), owner));
+        }
+        entries.sort(Comparator.comparing(Key::key));
+        String[] keys = new String[entries.size()];
+        int[] owners = new int[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).key();
+            owners[i] = entries.get(i).owner();
+        }
+
+        String etag = g >= 0
+                ? "patients-" + epoch + "-" + g
+                : "patients-h" + Integer.toUnsignedString(sorted.hashCode(), 36) + "-" + sorted.size();
+        return new Snapshot(g, etag, List.copyOf(sorted), keys, owners);
+    }
+
+    /**
+     * Lower-cased, trimmed, single-spaced.
+     */
+    static String normalize(String s) {
+        if (s == null) return "";
+        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index of the first key not less than {@code p}.
+     */
+    private static int lowerBound(String[] keys, String p) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(p) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -1,14 +1,28 @@
 package com.pies.patient.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pies.audit.service.AuditLogService;
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.patient.model.Patient;
+import com.pies.patient.payload.PatientMatch;
 import com.pies.patient.payload.PatientRequest;
+import com.pies.patient.payload.PatientSummary;
 import com.pies.patient.repository.PatientRepository;
+import com.pies.search.NameIndex;
 import com.pies.therapist.repository.TherapistRepository;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -21,10 +35,14 @@ public class PatientService {
     private final PatientRepository repo;
     private final AuditLogService audit;
     private final TherapistRepository therapistRepo;
+    private final NameIndex nameIndex;
+    private final PatientPicker picker;
 
     @Transactional
     public Patient save(Patient p) {
         var saved = repo.save(p);
+        nameIndex.patientChanged(saved);
+        picker.patientsChanged();
         audit.record("CREATE", "Patient", saved.getId());
         return saved;
     }
@@ -37,6 +55,8 @@ public class PatientService {
         if (in.getDateOfBirth() != null) p.setDateOfBirth(in.getDateOfBirth());
         if (in.getEmail() != null) p.setEmail(in.getEmail());
         var saved = repo.save(p);
+        nameIndex.patientChanged(saved);
+        picker.patientsChanged();
         audit.record("UPDATE", "Patient", saved.getId());
         return saved;
     }
@@ -50,9 +70,88 @@ public class PatientService {
         return p;
     }
 
-    public Page<Patient> findActive(String q, Pageable pageable) {
-        if (q == null || q.isBlank()) return repo.findByActiveStatusTrue(pageable);
-        return repo.search(q, pageable);
+    /**
+     * Entity tag of an active patient, covering the embedded therapist, read
+     * without loading the rows.
+     */
+    public String etag(Long id) {
+        return repo.findVersions(id).stream().findFirst()
+                .map(v -> EntityTags.fromRow(id, v))
+                .orElseThrow(() -> new EntityNotFoundException("Patient " + id + " not found"));
+    }
+
+    /**
+     * Entity tag of a loaded patient; matches {@link #etag(Long)}.
+     */
+    public String etag(Patient p) {
+        return EntityTags.of(p.getId(), p.getVersion(),
+                p.getTherapist() == null ? null : p.getTherapist().getVersion());
+    }
+
+    public Page<PatientSummary> findActive(String q, Pageable pageable) {
+        if (q == null || q.isBlank()) return repo.findSummaries(pageable);
+        return nameIndex.patients(q, true)
+                .map(ids -> ids.isEmpty() ? Page.<PatientSummary>empty(pageable)
+                        : repo.findSummariesByIds(ids, pageable))
+                .orElseGet(() -> repo.searchSummaries(q, pageable));
+    }
+
+    /**
+     * Typo-tolerant search ranked by name similarity, best match first.
+     * Falls back to the substring search when the name index cannot answer
+     * (still loading, or cluster mode).
+     */
+    public List<PatientMatch> searchRanked(String q, int limit) {
+        if (q == null || q.isBlank()) return List.of();
+        return nameIndex.rankPatients(q, limit)
+                .map(hits -> {
+                    Map<Long, Patient> byId = repo.findAllById(hits.stream().map(h -> h.id()).toList()).stream()
+                            .filter(Patient::isActiveStatus)
+                            .collect(Collectors.toMap(Patient::getId, Function.identity()));
+                    return hits.stream()
+                            .map(h -> {
+                                Patient p = byId.get(h.id());
+                                return p == null ? null : toMatch(p, h.score());
+                            })
+                            .filter(Objects::nonNull)
+                            .toList();
+                })
+                .orElseGet(() -> repo.searchSummaries(q, PageRequest.of(0, limit)).stream()
+                        .map(p -> new PatientMatch(p.id(), p.firstName(), p.lastName(), p.dateOfBirth(), p.email(), 1.0))
+                        .toList());
+    }
+
+    private static PatientMatch toMatch(Patient p, double score) {
+        return new PatientMatch(p.getId(), p.getFirstName(), p.getLastName(), p.getDateOfBirth(), p.getEmail(), score);
+    }
+
+    /**
+     * Keyset mode of {@link #findActive}: the page after {@code after} in id order, without a count query.
+     */
+    public KeysetSlice<PatientSummary> findActiveAfter(String q, String after, int size) {
+        long afterId = Keyset.afterId(after);
+        Pageable limit = Keyset.limit(size);
+        List<PatientSummary> rows;
+        if (q == null || q.isBlank()) {
+            rows = repo.findSummariesAfter(afterId, limit);
+        } else {
+            rows = nameIndex.patients(q, true)
+                    .map(ids -> Keyset.idsAfter(ids, afterId, size))
+                    .map(ids -> ids.isEmpty() ? List.<PatientSummary>of() : repo.findSummariesByIdsOrderById(ids, limit))
+                    .orElseGet(() -> repo.searchSummariesAfter(q, afterId, limit));
+        }
+        return Keyset.slice(rows, size, PatientSummary::id);
+    }
+
+    /**
+     * The restriction {@link #findActive} applies for {@code q}, for {@code ?fields=} reads.
+     */
+    public SparseQueries.Filter sparseFilter(String q) {
+        if (q == null || q.isBlank()) return SparseQueries.Filter.ALL;
+        return nameIndex.patients(q, true)
+                .map(ids -> ids.isEmpty() ? SparseQueries.Filter.NONE
+                        : SparseQueries.Filter.of(" and p.id in :ids", "ids", ids))
+                .orElseGet(() -> SparseQueries.Filter.of(PatientRepository.NAME_MATCH, "q", q));
     }
 
     @Transactional
@@ -60,6 +159,8 @@ public class PatientService {
         var p = findById(id);
         p.setActiveStatus(false);
         repo.save(p);
+        nameIndex.patientDeactivated(id);
+        picker.patientsChanged();
         audit.record("DELETE", "Patient", id);
     }
 
@@ -68,15 +169,23 @@ public class PatientService {
         Patient p = new Patient();
         mapRequestToEntity(req, p);
         var saved = repo.save(p);
+        nameIndex.patientChanged(saved);
+        picker.patientsChanged();
         audit.record("CREATE", "Patient", saved.getId());
         return saved;
     }
 
+    /**
+     * @param requiredVersion version the client last read (from {@code If-Match}), or null for {@code If-Match: *}
+     */
     @Transactional
-    public Patient updateFromRequest(Long id, PatientRequest req) {
+    public Patient updateFromRequest(Long id, PatientRequest req, Long requiredVersion) {
         var p = findById(id);
+        EntityTags.checkVersion(requiredVersion, p.getVersion());
         mapRequestToEntity(req, p);
         var saved = repo.save(p);
+        nameIndex.patientChanged(saved);
+        picker.patientsChanged();
         audit.record("UPDATE", "Patient", saved.getId());
         return saved;
     }
@@ -0,0 +1,52 @@
+package com.pies.report.controller;
+
+import com.pies.report.payload.WeeklyUtilization;
+import com.pies.report.service.UtilizationRollupService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Tag(name = "Reports")
+@RestController
+@RequestMapping("/reports/utilization")
+@RequiredArgsConstructor
+public class UtilizationReportController {
+
+    private final UtilizationRollupService svc;
+
+    public record SimpleResponse(String message) {
+    }
+
+    /**
+     * Weekly booked hours, appointments, cancellations, SOAP sessions and
+     * cancellation rate per therapist for the weeks overlapping {@code [from, to]}.
+     */
+    @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
+    @GetMapping
+    public List<WeeklyUtilization> weekly(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) Long therapistId) {
+        return svc.weekly(from, to, therapistId);
+    }
+
+    /**
+     * Recomputes the rollups of {@code [from, to]} from appointments and SOAP notes.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rebuild")
+    public ResponseEntity<SimpleResponse> rebuild(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        svc.rebuild(from, to);
+        return ResponseEntity.ok(new SimpleResponse("Utilization rebuilt from " + from + " to " + to));
+    }
+}
@@ -0,0 +1,17 @@
+package com.pies.report.payload;
+
+import java.time.LocalDate;
+
+/**
+ * Workload of one therapist in the ISO week starting {@code weekStart} (a Monday).
+ *
+ * @param cancellationRate cancellations over all bookings made for the week, 0 when there were none
+ */
+public record WeeklyUtilization(Long therapistId,
+                                LocalDate weekStart,
+                                double bookedHours,
+                                int appointments,
+                                int cancellations,
+                                int sessions,
+                                double cancellationRate) {
+}
@@ -0,0 +1,38 @@
+package com.pies.report.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Nightly rebuild of the recent rollup days from source, so rows changed outside
+ * the services (imports, manual fixes) do not drift for long. Any other range can
+ * be rebuilt on demand through the report endpoint.
+ */
+@Component
+public class UtilizationReconcileJob {
+    private static final Logger logger = LoggerFactory.getLogger(UtilizationReconcileJob.class);
+
+    private final UtilizationRollupService rollups;
+    private final int pastDays;
+    private final int futureDays;
+
+    public UtilizationReconcileJob(UtilizationRollupService rollups,
+                                   @Value("${report.utilization.reconcile-past-days:7}") int pastDays,
+                                   @Value("${report.utilization.reconcile-future-days:30}") int futureDays) {
+        this.rollups = rollups;
+        this.pastDays = pastDays;
+        this.futureDays = futureDays;
+    }
+
+    @Scheduled(cron = "${report.utilization.reconcile-cron:0 45 2 * * *}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        rollups.rebuild(today.minusDays(pastDays), today.plusDays(futureDays));
+        logger.info("Rebuilt utilization rollups from {} to {}", today.minusDays(pastDays), today.plusDays(futureDays));
+    }
+}
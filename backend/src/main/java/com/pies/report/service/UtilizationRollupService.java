@@ -0,0 +1,146 @@
+package com.pies.report.service;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.report.payload.WeeklyUtilization;
+import com.pies.soap.event.SoapNoteChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily per-therapist workload in {@code therapist_daily_rollups}.
+ * <p>
+ * Rows are adjusted by delta upserts from booking, cancellation and SOAP note
+ * events just before the source change commits, in the same transaction, so a
+ * rolled-back change never counts. {@link #rebuild} recomputes days from the
+ * source tables for anything written outside the services. Reports read only
+ * the rollups.
+ */
+@Service
+@RequiredArgsConstructor
+public class UtilizationRollupService {
+
+    static final int MAX_REPORT_DAYS = 366;
+
+    // Deltas are passed twice: clamped for a new row, added for an existing one. Counts
+    // never go below zero, e.g. when a booking made before the rollups is cancelled
+    private static final String UPSERT_SQL = "INSERT INTO therapist_daily_rollups "
+            + "(therapist_id, day, booked_minutes, appointments, cancellations, sessions) "
+            + "VALUES (?, ?, GREATEST(0, ?), GREATEST(0, ?), GREATEST(0, ?), GREATEST(0, ?)) "
+            + "ON DUPLICATE KEY UPDATE booked_minutes = GREATEST(0, booked_minutes + ?), "
+            + "appointments = GREATEST(0, appointments + ?), "
+            + "cancellations = GREATEST(0, cancellations + ?), "
+            + "sessions = GREATEST(0, sessions + ?)";
+
+    private final JdbcTemplate jdbc;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(AppointmentChangedEvent e) {
+        int minutes = (int) Duration.between(e.start(), e.end()).toMinutes();
+        LocalDate day = e.start().toLocalDate();
+        switch (e.type()) {
+            case CREATED -> add(e.therapistId(), day, minutes, 1, 0, 0);
+            case CANCELLED -> add(e.therapistId(), day, -minutes, -1, 1, 0);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(SoapNoteChangedEvent e) {
+        if (e.therapistId() == null || e.dateOfSession() == null) return;
+        add(e.therapistId(), e.dateOfSession(), 0, 0, 0, e.type() == SoapNoteChangedEvent.Type.CREATED ? 1 : -1);
+    }
+
+    /**
+     * Recomputes every therapist's rollup for the days in {@code [from, to]} from
+     * {@code appointments} and {@code soap_notes}.
+     */
+    @Transactional
+    public void rebuild(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        Date first = Date.valueOf(from);
+        Date afterLast = Date.valueOf(to.plusDays(1));
+        jdbc.update("DELETE FROM therapist_daily_rollups WHERE day >= ? AND day < ?", first, afterLast);
+        jdbc.update("INSERT INTO therapist_daily_rollups "
+                + "(therapist_id, day, booked_minutes, appointments, cancellations, sessions) "
+                + "SELECT therapist_id, DATE(appointment_time), "
+                + "SUM(CASE WHEN active_status THEN duration_minutes ELSE 0 END), "
+                + "SUM(CASE WHEN active_status THEN 1 ELSE 0 END), "
+                + "SUM(CASE WHEN active_status THEN 0 ELSE 1 END), 0 "
+                + "FROM appointments WHERE appointment_time >= ? AND appointment_time < ? "
+                + "GROUP BY therapist_id, DATE(appointment_time)", first, afterLast);
+        jdbc.update("INSERT INTO therapist_daily_rollups "
+                + "(therapist_id, day, booked_minutes, appointments, cancellations, sessions) "
+                + "SELECT therapist_id, date_of_session, 0, 0, 0, COUNT(*) "
+                + "FROM soap_notes WHERE date_of_session >= ? AND date_of_session < ? AND active_status = true "
+                + "AND therapist_id IS NOT NULL "
+                + "GROUP BY therapist_id, date_of_session "
+                + "ON DUPLICATE KEY UPDATE sessions = VALUES(sessions)", first, afterLast);
+    }
+
+    /**
+     * Weekly totals per therapist for the weeks overlapping {@code [from, to]},
+     * optionally for one therapist, read from the rollups only.
+     */
+    @Transactional(readOnly = true)
+    public List<WeeklyUtilization> weekly(LocalDate from, LocalDate to, Long therapistId) {
+        checkRange(from, to);
+        LocalDate start = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate end = to.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        String sql = "SELECT therapist_id, day, booked_minutes, appointments, cancellations, sessions "
+                + "FROM therapist_daily_rollups WHERE day >= ? AND day <= ?"
+                + (therapistId == null ? "" : " AND therapist_id = ?")
+                + " ORDER BY therapist_id, day";
+        Object[] args = therapistId == null
+                ? new Object[]{Date.valueOf(start), Date.valueOf(end)}
+                : new Object[]{Date.valueOf(start), Date.valueOf(end), therapistId};
+
+        record Key(Long therapistId, LocalDate weekStart) {
+        }
+        Map<Key, int[]> totals = new LinkedHashMap<>();
+        jdbc.query(sql, rs -> {
+            LocalDate day = rs.getDate(2).toLocalDate();
+            Key key = new Key(rs.getLong(1), day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            int[] t = totals.computeIfAbsent(key, k -> new int[4]);
+            t[0] += rs.getInt(3);
+            t[1] += rs.getInt(4);
+            t[2] += rs.getInt(5);
+            t[3] += rs.getInt(6);
+        }, args);
+
+        List<WeeklyUtilization> out = new ArrayList<>(totals.size());
+        totals.forEach((k, t) -> {
+            int booked = t[1] + t[2];
+            out.add(new WeeklyUtilization(k.therapistId(), k.weekStart(), t[0] / 60.0, t[1], t[2], t[3],
+                    booked == 0 ? 0 : (double) t[2] / booked));
+        });
+        return out;
+    }
+
+    private void add(Long therapistId, LocalDate day, int minutes, int appointments, int cancellations, int sessions) {
+        jdbc.update(UPSERT_SQL, therapistId, Date.valueOf(day), minutes, appointments, cancellations, sessions,
+                minutes, appointments, cancellations, sessions);
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_REPORT_DAYS) {
+            throw new IllegalArgumentException("Range can span at most " + MAX_REPORT_DAYS + " days");
+        }
+    }
+}
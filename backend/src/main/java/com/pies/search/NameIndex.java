@@ -0,0 +1,132 @@
+package com.pies.search;
+
+import com.pies.common.AfterCommit;
+import com.pies.patient.model.Patient;
+import com.pies.patient.repository.PatientRepository;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.repository.TherapistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shared name search over patients and therapists.
+ * <p>
+ * Both trigram indexes are loaded once the application is ready and kept current
+ * by the services after their transactions commit. Lookups return the matching
+ * ids, to be fetched with {@code id IN (...)}; an empty {@link Optional} means the
+ * index cannot answer (still loading, or the query matches more than
+ * {@code search.name-index.max-candidates} ids) and the caller should fall back
+ * to its LIKE query.
+ * <p>
+ * Only this node's writes reach the indexes. With
+ * {@code appointment.booking.cluster=true} names created or changed on other
+ * nodes would never show up, so the indexes are not loaded and every lookup
+ * returns empty: searches run as LIKE queries, and ranked search loses its
+ * typo tolerance.
+ */
+@Service
+public class NameIndex {
+    private static final Logger logger = LoggerFactory.getLogger(NameIndex.class);
+
+    private final PatientRepository patientRepo;
+    private final TherapistRepository therapistRepo;
+    private final int maxCandidates;
+    private final double minScore;
+    private final boolean cluster;
+    private final TrigramIndex patients;
+    private final TrigramIndex therapists = new TrigramIndex();
+    private volatile boolean ready;
+
+    public NameIndex(PatientRepository patientRepo,
+                     TherapistRepository therapistRepo,
+                     @Value("${search.name-index.max-candidates:2000}") int maxCandidates,
+                     @Value("${search.ranked.phonetic:true}") boolean phonetic,
+                     @Value("${search.ranked.min-score:0.3}") double minScore,
+                     @Value("${appointment.booking.cluster:false}") boolean cluster) {
+        this.patientRepo = patientRepo;
+        this.therapistRepo = therapistRepo;
+        this.maxCandidates = maxCandidates;
+        this.minScore = minScore;
+        this.cluster = cluster;
+        this.patients = new TrigramIndex(phonetic);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (cluster) {
+            logger.info("Name index disabled in cluster mode; name searches use LIKE queries");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (Object[] row : patientRepo.findAllNames()) {
+            patients.putIfAbsent((Long) row[0], (String) row[1], (String) row[2], (Boolean) row[3]);
+        }
+        for (Object[] row : therapistRepo.findAllNames()) {
+            therapists.putIfAbsent((Long) row[0], (String) row[1], (String) row[2], (Boolean) row[3]);
+        }
+        ready = true;
+        logger.info("Name index loaded: {} patients, {} therapists in {} ms",
+                patients.size(), therapists.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Ids of patients whose first or last name contains {@code q}.
+     *
+     * @param activeOnly false to include soft-deleted patients, e.g. when searching their notes
+     */
+    public Optional<List<Long>> patients(String q, boolean activeOnly) {
+        return lookup(patients, q, activeOnly);
+    }
+
+    /**
+     * Up to {@code limit} active patients best matching a possibly misspelled
+     * query, highest score first; empty while the index is loading.
+     */
+    public Optional<List<TrigramIndex.Hit>> rankPatients(String q, int limit) {
+        if (!ready) return Optional.empty();
+        return Optional.of(patients.rank(q, limit, minScore));
+    }
+
+    /**
+     * Ids of active therapists whose first or last name contains {@code q}.
+     */
+    public Optional<List<Long>> therapists(String q) {
+        return lookup(therapists, q, true);
+    }
+
+    public void patientChanged(Patient p) {
+        Long id = p.getId();
+        String first = p.getFirstName();
+        String last = p.getLastName();
+        boolean active = p.isActiveStatus();
+        AfterCommit.run(() -> patients.put(id, first, last, active));
+    }
+
+    public void patientDeactivated(Long id) {
+        AfterCommit.run(() -> patients.deactivate(id));
+    }
+
+    public void therapistChanged(Therapist t) {
+        Long id = t.getId();
+        String first = t.getFirstName();
+        String last = t.getLastName();
+        boolean active = t.isActiveStatus();
+        AfterCommit.run(() -> therapists.put(id, first, last, active));
+    }
+
+    public void therapistDeactivated(Long id) {
+        AfterCommit.run(() -> therapists.deactivate(id));
+    }
+
+    private Optional<List<Long>> lookup(TrigramIndex index, String q, boolean activeOnly) {
+        if (!ready) return Optional.empty();
+        return Optional.ofNullable(index.search(q, activeOnly, maxCandidates));
+    }
+}
@@ -0,0 +1,345 @@
+package com.pies.search;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trigram index over first and last names.
+ * <p>
+ * Each name is lower-cased and split into overlapping three-character grams; a
+ * posting set per gram holds the ids whose first or last name contains it. A
+ * substring query intersects the postings of its grams (smallest first) and then
+ * checks the candidates against the stored names, so results are exactly those
+ * of {@code lower(name) like '%q%'} on either field. Queries shorter than three
+ * characters scan the stored names instead.
+ * <p>
+ * With phonetic keys enabled, the Double Metaphone codes of each name are indexed
+ * as well and {@link #rank} returns the best fuzzy matches for misspelled queries.
+ * <p>
+ * Reads are lock-free; writes are serialized.
+ */
+public class TrigramIndex {
+
+    private static final double PREFIX_SCORE = 0.9;
+    private static final double CONTAINS_SCORE = 0.7;
+    private static final double PHONETIC_BONUS = 0.3;
+
+    /**
+     * Double Metaphone codes of one name; {@code alternate} equals {@code primary}
+     * when the name has a single pronunciation.
+     */
+    public record Keys(String primary, String alternate) {
+        static final Keys NONE = new Keys("", "");
+
+        boolean matches(Keys other) {
+            if (primary.isEmpty() || other.primary.isEmpty()) return false;
+            return primary.equals(other.primary) || primary.equals(other.alternate)
+                    || alternate.equals(other.primary) || alternate.equals(other.alternate);
+        }
+    }
+
+    /**
+     * Indexed names of one record.
+     */
+    public record Entry(String first, String last, boolean active, Keys firstKeys, Keys lastKeys) {
+    }
+
+    /**
+     * One ranked match; {@code score} is in [0, 1].
+     */
+    public record Hit(Long id, double score) {
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> phonetic = new ConcurrentHashMap<>();
+    private final DoubleMetaphone metaphone;
+
+    public TrigramIndex() {
+        this(false);
+    }
+
+    /**
+     * @param phoneticKeys also index Double Metaphone codes for {@link #rank}
+     */
+    public TrigramIndex(boolean phoneticKeys) {
+        this.metaphone = phoneticKeys ? new DoubleMetaphone() : null;
+    }
+
+    /**
+     * Adds or replaces a record.
+     */
+    public synchronized void put(Long id, String firstName, String lastName, boolean active) {
+        Entry old = entries.get(id);
+        String first = normalize(firstName);
+        String last = normalize(lastName);
+        Entry next = new Entry(first, last, active, keys(first), keys(last));
+        if (old != null) {
+            Set<String> keep = grams(next);
+            for (String g : grams(old)) {
+                if (!keep.contains(g)) removePosting(postings, g, id);
+            }
+            Set<String> keepCodes = codes(next);
+            for (String c : codes(old)) {
+                if (!keepCodes.contains(c)) removePosting(phonetic, c, id);
+            }
+        }
+        for (String g : grams(next)) {
+            postings.computeIfAbsent(g, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        for (String c : codes(next)) {
+            phonetic.computeIfAbsent(c, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        entries.put(id, next);
+    }
+
+    /**
+     * Adds a record unless it is already present. Used by the bulk load so that
+     * incremental updates applied meanwhile are not overwritten by older rows.
+     */
+    public synchronized void putIfAbsent(Long id, String firstName, String lastName, boolean active) {
+        if (!entries.containsKey(id)) put(id, firstName, lastName, active);
+    }
+
+    /**
+     * Marks a record inactive (soft delete) without dropping its grams.
+     */
+    public synchronized void deactivate(Long id) {
+        entries.computeIfPresent(id, (k, e) -> new Entry(e.first(), e.last(), false, e.firstKeys(), e.lastKeys()));
+    }
+
+    public synchronized void remove(Long id) {
+        Entry old = entries.remove(id);
+        if (old != null) {
+            for (String g : grams(old)) removePosting(postings, g, id);
+            for (String c : codes(old)) removePosting(phonetic, c, id);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry get(Long id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Ids whose first or last name contains {@code query}, ascending.
+     *
+     * @param activeOnly skip records marked inactive
+     * @param limit      give up and return null once more than this many ids match
+     */
+    public List<Long> search(String query, boolean activeOnly, int limit) {
+        String q = normalize(query);
+        List<Long> out = new ArrayList<>();
+        if (q.length() < 3) {
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                if (matches(e.getValue(), q, activeOnly)) {
+                    out.add(e.getKey());
+                    if (out.size() > limit) return null;
+                }
+            }
+        } else {
+            List<Set<Long>> sets = new ArrayList<>();
+            for (String g : grams(q)) {
+                Set<Long> s = postings.get(g);
+                if (s == null) return List.of();
+                sets.add(s);
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+            Set<Long> smallest = sets.get(0);
+            outer:
+            for (Long id : smallest) {
+                for (int i = 1; i < sets.size(); i++) {
+                    if (!sets.get(i).contains(id)) continue outer;
+                }
+                Entry e = entries.get(id);
+                if (e != null && matches(e, q, activeOnly)) {
+                    out.add(id);
+                    if (out.size() > limit) return null;
+                }
+            }
+        }
+        out.sort(null);
+        return out;
+    }
+
+    /**
+     * Best {@code k} active records for a possibly misspelled query, highest score first.
+     * <p>
+     * Candidates share at least half of the query's trigrams or a phonetic code
+     * with one of its words. Each query word scores against the closer of the first
+     * and last name: trigram Jaccard similarity, raised for prefix or substring
+     * matches, plus a bonus when the phonetic codes agree; the record's score is the
+     * mean over the words. Only a size-{@code k} min-heap of the best candidates is
+     * kept, so the cost is bounded by the candidate count rather than the table.
+     */
+    public List<Hit> rank(String query, int k, double minScore) {
+        List<String> words = words(query);
+        if (words.isEmpty() || k <= 0) return List.of();
+        List<Set<String>> wordGrams = new ArrayList<>();
+        List<Keys> wordKeys = new ArrayList<>();
+        List<Set<Long>> lists = new ArrayList<>();
+        int totalGrams = 0;
+        for (String w : words) {
+            Set<String> g = grams(w);
+            wordGrams.add(g);
+            wordKeys.add(keys(w));
+            totalGrams += g.size();
+            for (String gram : g) {
+                lists.add(postings.getOrDefault(gram, Set.of()));
+            }
+        }
+        // A record sharing minShared of n grams appears in at least one of the
+        // n - minShared + 1 shortest posting lists, so only those are scanned
+        int minShared = Math.max(1, (totalGrams + 1) / 2);
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> candidates = new HashSet<>();
+        for (int i = 0; i < lists.size() - minShared + 1; i++) {
+            for (Long id : lists.get(i)) {
+                if (candidates.contains(id)) continue;
+                int count = 0;
+                for (int j = 0; j < lists.size() && count < minShared; j++) {
+                    if (j == i || lists.get(j).contains(id)) count++;
+                }
+                if (count >= minShared) candidates.add(id);
+            }
+        }
+        for (Keys keys : wordKeys) {
+            addPhonetic(candidates, keys.primary());
+            addPhonetic(candidates, keys.alternate());
+        }
+
+        Comparator<Hit> worstFirst = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Hit::id, Comparator.reverseOrder());
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, worstFirst);
+        // Names repeat a lot (common surnames), so each distinct name is scored once per word
+        List<Map<String, Double>> memo = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) memo.add(new HashMap<>());
+        for (Long id : candidates) {
+            Entry e = entries.get(id);
+            if (e == null || !e.active()) continue;
+            double total = 0;
+            for (int i = 0; i < words.size(); i++) {
+                String w = words.get(i);
+                Set<String> g = wordGrams.get(i);
+                Keys wk = wordKeys.get(i);
+                Map<String, Double> m = memo.get(i);
+                total += Math.max(
+                        m.computeIfAbsent(e.first(), name -> score(w, g, wk, name, e.firstKeys())),
+                        m.computeIfAbsent(e.last(), name -> score(w, g, wk, name, e.lastKeys())));
+            }
+            double s = total / words.size();
+            if (s < minScore) continue;
+            if (heap.size() < k) {
+                heap.add(new Hit(id, s));
+            } else if (worstFirst.compare(new Hit(id, s), heap.peek()) > 0) {
+                heap.poll();
+                heap.add(new Hit(id, s));
+            }
+        }
+        List<Hit> out = new ArrayList<>(heap);
+        out.sort(worstFirst.reversed());
+        return out;
+    }
+
+    /**
+     * Distinct trigrams of a normalized string.
+     */
+    public static Set<String> grams(String s) {
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out.add(s.substring(i, i + 3));
+        }
+        return out;
+    }
+
+    public static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> words(String query) {
+        List<String> out = new ArrayList<>();
+        for (String w : normalize(query).split("[\\s,]+")) {
+            if (!w.isEmpty()) out.add(w);
+        }
+        return out;
+    }
+
+    private static double score(String word, Set<String> wordGrams, Keys wordKeys, String name, Keys nameKeys) {
+        if (name.isEmpty()) return 0;
+        double s;
+        if (name.startsWith(word)) {
+            s = word.length() == name.length() ? 1.0 : PREFIX_SCORE;
+        } else if (name.contains(word)) {
+            s = CONTAINS_SCORE;
+        } else {
+            s = jaccard(wordGrams, grams(name));
+        }
+        if (wordKeys.matches(nameKeys)) s += PHONETIC_BONUS;
+        return Math.min(1.0, s);
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        int common = 0;
+        for (String g : a) {
+            if (b.contains(g)) common++;
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    private Keys keys(String name) {
+        if (metaphone == null || name.isEmpty()) return Keys.NONE;
+        String primary = metaphone.doubleMetaphone(name, false);
+        String alternate = metaphone.doubleMetaphone(name, true);
+        if (primary == null || primary.isEmpty()) return Keys.NONE;
+        return new Keys(primary, alternate == null || alternate.isEmpty() ? primary : alternate);
+    }
+
+    private void addPhonetic(Set<Long> candidates, String code) {
+        if (code.isEmpty()) return;
+        Set<Long> ids = phonetic.get(code);
+        if (ids != null) candidates.addAll(ids);
+    }
+
+    private static Set<String> grams(Entry e) {
+        Set<String> out = grams(e.first());
+        out.addAll(grams(e.last()));
+        return out;
+    }
+
+    private static Set<String> codes(Entry e) {
+        Set<String> out = new HashSet<>();
+        for (Keys k : List.of(e.firstKeys(), e.lastKeys())) {
+            if (!k.primary().isEmpty()) {
+                out.add(k.primary());
+                out.add(k.alternate());
+            }
+        }
+        return out;
+    }
+
+    private static boolean matches(Entry e, String q, boolean activeOnly) {
+        return (!activeOnly || e.active()) && (e.first().contains(q) || e.last().contains(q));
+    }
+
+    private static void removePosting(Map<String, Set<Long>> map, String key, Long id) {
+        Set<Long> s = map.get(key);
+        if (s != null) {
+            s.remove(id);
+            if (s.isEmpty()) map.remove(key, s);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.pies.selfassessment.controller;
 
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.patient.model.Patient;
 import com.pies.patient.repository.PatientRepository;
 import com.pies.selfassessment.model.SelfAssessment;
@@ -7,18 +11,25 @@ import com.pies.selfassessment.payload.SelfAssessmentRequest;
 import com.pies.selfassessment.service.SelfAssessmentService;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.repository.TherapistRepository;
+import com.pies.selfassessment.payload.SelfAssessmentSummary;
+import com.pies.selfassessment.repository.SelfAssessmentRepository;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDate;
 
 @Tag(name = "SelfAssessments")
@@ -28,6 +39,7 @@ import java.time.LocalDate;
 public class SelfAssessmentController {
 
     private final SelfAssessmentService svc;
+    private final SparseQueries sparse;
     private final PatientRepository patientRepo;
     private final TherapistRepository therapistRepo;
 
@@ -64,21 +76,33 @@ public class SelfAssessmentController {
 
     /**
      * Update an existing self-assessment. Only SENIOR or ADMIN.
+     * Requires {@code If-Match} (428 without it); a stale tag gets 412.
      */
     @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
     @PutMapping("{id}")
-    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody SelfAssessment a) {
-        svc.update(id, a);
-        return ResponseEntity.ok(new SimpleResponse("Self assessment updated successfully"));
+    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody SelfAssessment a,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        SelfAssessment saved = svc.update(id, a, EntityTags.requiredVersion(ifMatch, id));
+        return ResponseEntity.ok()
+                .eTag(svc.etag(saved))
+                .body(new SimpleResponse("Self assessment updated successfully"));
     }
 
     /**
      * Retrieve a self-assessment by ID. All therapist roles can view.
+     * Honours {@code If-None-Match}.
      */
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping("{id}")
-    public SelfAssessment get(@PathVariable Long id) {
-        return svc.findById(id);
+    public ResponseEntity<SelfAssessment> get(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(svc.etag(id))) {
+            return null;
+        }
+        SelfAssessment found = svc.findById(id);
+        return ResponseEntity.ok()
+                .eTag(svc.etag(found))
+                .cacheControl(CacheControl.noCache())
+                .body(found);
     }
 
     /**
@@ -86,13 +110,50 @@ public class SelfAssessmentController {
      */
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping
-    public Page<SelfAssessment> list(@RequestParam(defaultValue = "0") int page,
-                                     @RequestParam(defaultValue = "10") int size,
-                                     @RequestParam(required = false) String q) {
+    public Page<SelfAssessmentSummary> list(@RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "10") int size,
+                                            @RequestParam(required = false) String q) {
         Pageable pageable = PageRequest.of(page, size);
         return svc.findActive(q, pageable);
     }
 
+    /**
+     * Keyset mode: pass {@code after} (empty for the first page), then the returned
+     * {@code nextCursor}. Rows come in id order and no count query is run.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = {"after", "!fields"})
+    public KeysetSlice<SelfAssessmentSummary> listAfter(@RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String q) {
+        return svc.findActiveAfter(q, after, Keyset.size(size));
+    }
+
+    /**
+     * Only the attributes named in {@code fields}, e.g. {@code ?fields=id,dateOfSession,goalOfSession},
+     * in page mode or, with {@code after}, keyset mode. Unknown names get 400.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = "fields")
+    public void listFields(@RequestParam String fields,
+                           @RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(required = false) String q,
+                           @RequestParam(required = false) String after,
+                           HttpServletResponse response) throws IOException {
+        sparse.writeList(SelfAssessmentRepository.SPARSE, fields, svc::sparseFilter, q, after, page, size, response);
+    }
+
+    /**
+     * One record with only the attributes named in {@code fields}.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(value = "{id}", params = "fields")
+    public void getFields(@PathVariable Long id, @RequestParam String fields, HttpServletResponse response)
+            throws IOException {
+        sparse.writeOne(SelfAssessmentRepository.SPARSE, fields, id, response);
+    }
+
     /**
      * Soft-delete a self-assessment. Only SENIOR or ADMIN.
      */
@@ -37,4 +37,8 @@ public class SelfAssessment {
     private String notes;
 
     private boolean activeStatus = true;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.pies.selfassessment.payload;
+
+import java.time.LocalDate;
+
+/**
+ * Self-assessment without its assessment text and notes.
+ */
+public record SelfAssessmentSummary(Long id, Long patientId, String patientName, LocalDate dateOfSession,
+                                    String goalOfSession, Long therapistId) {
+}
@@ -1,17 +1,79 @@
 package com.pies.selfassessment.repository;
 
+import com.pies.common.SparseFields;
 import com.pies.selfassessment.model.SelfAssessment;
+import com.pies.selfassessment.payload.SelfAssessmentSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface SelfAssessmentRepository extends JpaRepository<SelfAssessment, Long> {
-    Page<SelfAssessment> findByActiveStatusTrue(Pageable pageable);
 
-    @Query("select s from SelfAssessment s where s.activeStatus=true" +
-            " and (:q is null or lower(s.patient.firstName) like lower(concat('%', :q, '%'))" +
-            " or lower(s.patient.lastName) like lower(concat('%', :q, '%'))) ")
-    Page<SelfAssessment> search(@Param("q") String q, Pageable pageable);
-}
\ No newline at end of file
+    /**
+     * List columns only, with the patient's name joined in, so a page is a single select
+     */
+    String SUMMARY = "select new com.pies.selfassessment.payload.SelfAssessmentSummary(s.id, p.id," +
+            " concat(p.firstName, ' ', p.lastName), s.dateOfSession, s.goalOfSession, t.id)" +
+            " from SelfAssessment s left join s.patient p left join s.therapist t";
+
+    String NAME_MATCH = " and (lower(p.firstName) like lower(concat('%', :q, '%'))" +
+            " or lower(p.lastName) like lower(concat('%', :q, '%')))";
+
+    /**
+     * Attributes offered to {@code ?fields=}
+     */
+    SparseFields SPARSE = SparseFields.of("Self assessment",
+                    "SelfAssessment s left join s.patient p left join s.therapist t", "s")
+            .field("id", "s.id")
+            .field("patientId", "p.id")
+            .field("patientName", "concat(p.firstName, ' ', p.lastName)")
+            .field("therapistId", "t.id")
+            .field("therapistName", "concat(t.firstName, ' ', t.lastName)")
+            .field("dateOfSession", "s.dateOfSession")
+            .field("goalOfSession", "s.goalOfSession")
+            .field("assessment", "s.assessment")
+            .field("notes", "s.notes")
+            .field("version", "s.version");
+
+    @Query(value = SUMMARY + " where s.activeStatus = true",
+            countQuery = "select count(s) from SelfAssessment s where s.activeStatus = true")
+    Page<SelfAssessmentSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + " where s.activeStatus = true" + NAME_MATCH,
+            countQuery = "select count(s) from SelfAssessment s left join s.patient p where s.activeStatus = true"
+                    + NAME_MATCH)
+    Page<SelfAssessmentSummary> searchSummaries(@Param("q") String q, Pageable pageable);
+
+    @Query(value = SUMMARY + " where p.id in :patientIds and s.activeStatus = true",
+            countQuery = "select count(s) from SelfAssessment s where s.patient.id in :patientIds and s.activeStatus = true")
+    Page<SelfAssessmentSummary> findSummariesByPatientIds(@Param("patientIds") Collection<Long> patientIds,
+            Pageable pageable);
+
+    // Keyset (?after=) variants: seek on id, first page of size + 1, no count query
+
+    @Query(SUMMARY + " where s.activeStatus = true and s.id > :after order by s.id")
+    List<SelfAssessmentSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where p.id in :patientIds and s.activeStatus = true and s.id > :after order by s.id")
+    List<SelfAssessmentSummary> findSummariesByPatientIdsAfter(@Param("patientIds") Collection<Long> patientIds,
+            @Param("after") Long after, Pageable pageable);
+
+    @Query(SUMMARY + " where s.activeStatus = true" + NAME_MATCH + " and s.id > :after order by s.id")
+    List<SelfAssessmentSummary> searchSummariesAfter(@Param("q") String q, @Param("after") Long after,
+            Pageable pageable);
+
+    @Query(SUMMARY + " where p.id = :patientId and s.activeStatus = true order by s.dateOfSession desc, s.id desc")
+    List<SelfAssessmentSummary> findSummariesByPatient(@Param("patientId") Long patientId, Pageable pageable);
+
+    /**
+     * Versions of the row, its patient, the patient's therapist and its own therapist
+     */
+    @Query("select s.version, p.version, pt.version, t.version from SelfAssessment s left join s.patient p"
+            + " left join p.therapist pt left join s.therapist t where s.id = :id and s.activeStatus = true")
+    List<Object[]> findVersions(@Param("id") Long id);
+}
@@ -1,8 +1,16 @@
 package com.pies.selfassessment.service;
 
 import com.pies.audit.service.AuditLogService;
+import com.pies.common.EntityTags;
+import com.pies.therapist.model.Therapist;
+import com.pies.patient.model.Patient;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.selfassessment.model.SelfAssessment;
+import com.pies.selfassessment.payload.SelfAssessmentSummary;
 import com.pies.selfassessment.repository.SelfAssessmentRepository;
+import com.pies.search.NameIndex;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -10,12 +18,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class SelfAssessmentService {
 
     private final SelfAssessmentRepository repo;
     private final AuditLogService audit;
+    private final NameIndex nameIndex;
 
     @Transactional
     public SelfAssessment save(SelfAssessment a) {
@@ -25,8 +36,9 @@ public class SelfAssessmentService {
     }
 
     @Transactional
-    public SelfAssessment update(Long id, SelfAssessment in) {
+    public SelfAssessment update(Long id, SelfAssessment in, Long requiredVersion) {
         var a = findById(id);
+        EntityTags.checkVersion(requiredVersion, a.getVersion());
         if (in.getDateOfSession() != null) a.setDateOfSession(in.getDateOfSession());
         if (in.getGoalOfSession() != null) a.setGoalOfSession(in.getGoalOfSession());
         if (in.getAssessment() != null) a.setAssessment(in.getAssessment());
@@ -45,9 +57,65 @@ public class SelfAssessmentService {
         return a;
     }
 
-    public Page<SelfAssessment> findActive(String q, Pageable pageable) {
-        if (q == null || q.isBlank()) return repo.findByActiveStatusTrue(pageable);
-        return repo.search(q, pageable);
+    /**
+     * Entity tag of an active self-assessment, covering the embedded patient and
+     * therapists, read without loading the rows.
+     *
+     * @throws EntityNotFoundException if not found or inactive
+     */
+    public String etag(Long id) {
+        return repo.findVersions(id).stream().findFirst()
+                .map(v -> EntityTags.fromRow(id, v))
+                .orElseThrow(() -> new EntityNotFoundException("Self assessment " + id + " not found"));
+    }
+
+    /**
+     * Entity tag of a loaded self-assessment; matches {@link #etag(Long)}.
+     */
+    public String etag(SelfAssessment a) {
+        Patient patient = a.getPatient();
+        Therapist patientTherapist = patient == null ? null : patient.getTherapist();
+        return EntityTags.of(a.getId(), a.getVersion(),
+                patient == null ? null : patient.getVersion(),
+                patientTherapist == null ? null : patientTherapist.getVersion(),
+                a.getTherapist() == null ? null : a.getTherapist().getVersion());
+    }
+
+    public Page<SelfAssessmentSummary> findActive(String q, Pageable pageable) {
+        if (q == null || q.isBlank()) return repo.findSummaries(pageable);
+        return nameIndex.patients(q, false)
+                .map(ids -> ids.isEmpty() ? Page.<SelfAssessmentSummary>empty(pageable)
+                        : repo.findSummariesByPatientIds(ids, pageable))
+                .orElseGet(() -> repo.searchSummaries(q, pageable));
+    }
+
+    /**
+     * Keyset mode of {@link #findActive}: the page after the cursor in id order, without a count query.
+     */
+    public KeysetSlice<SelfAssessmentSummary> findActiveAfter(String q, String after, int size) {
+        long afterId = Keyset.afterId(after);
+        Pageable limit = Keyset.limit(size);
+        List<SelfAssessmentSummary> rows;
+        if (q == null || q.isBlank()) {
+            rows = repo.findSummariesAfter(afterId, limit);
+        } else {
+            rows = nameIndex.patients(q, false)
+                    .map(ids -> ids.isEmpty() ? List.<SelfAssessmentSummary>of()
+                            : repo.findSummariesByPatientIdsAfter(ids, afterId, limit))
+                    .orElseGet(() -> repo.searchSummariesAfter(q, afterId, limit));
+        }
+        return Keyset.slice(rows, size, SelfAssessmentSummary::id);
+    }
+
+    /**
+     * The restriction {@link #findActive} applies for {@code q}, for {@code ?fields=} reads.
+     */
+    public SparseQueries.Filter sparseFilter(String q) {
+        if (q == null || q.isBlank()) return SparseQueries.Filter.ALL;
+        return nameIndex.patients(q, false)
+                .map(ids -> ids.isEmpty() ? SparseQueries.Filter.NONE
+                        : SparseQueries.Filter.of(" and p.id in :ids", "ids", ids))
+                .orElseGet(() -> SparseQueries.Filter.of(SelfAssessmentRepository.NAME_MATCH, "q", q));
     }
 
     @Transactional
@@ -1,5 +1,9 @@
 package com.pies.soap.controller;
 
+import com.pies.common.EntityTags;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.patient.model.Patient;
 import com.pies.patient.repository.PatientRepository;
 import com.pies.soap.model.SoapNote;
@@ -7,11 +11,14 @@ import com.pies.soap.payload.SoapNoteRequest;
 import com.pies.soap.service.SoapNoteService;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.repository.TherapistRepository;
+import com.pies.soap.payload.SoapNoteSummary;
+import com.pies.soap.repository.SoapNoteRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -19,11 +26,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
@@ -35,6 +46,7 @@ public class SoapNoteController {
     private static final Logger logger = LoggerFactory.getLogger(SoapNoteController.class);
 
     private final SoapNoteService svc;
+    private final SparseQueries sparse;
     private final PatientRepository patientRepo;
     private final TherapistRepository therapistRepo;
 
@@ -95,21 +107,32 @@ public class SoapNoteController {
 
     /**
      * Update an existing SOAP note. Only SENIOR and ADMIN allowed.
+     * Requires {@code If-Match} (428 without it); a stale tag gets 412.
      */
     @PreAuthorize("hasAnyRole('SENIOR', 'ADMIN')")
     @PutMapping("{id}")
-    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody SoapNote n) {
-        svc.update(id, n);
-        return ResponseEntity.ok(new SimpleResponse("SOAP note updated successfully"));
+    public ResponseEntity<SimpleResponse> update(@PathVariable Long id, @RequestBody SoapNote n,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        SoapNote saved = svc.update(id, n, EntityTags.requiredVersion(ifMatch, id));
+        return ResponseEntity.ok()
+                .eTag(svc.etag(saved))
+                .body(new SimpleResponse("SOAP note updated successfully"));
     }
 
     /**
-     * Get a SOAP note by ID. All roles can view.
+     * Get a SOAP note by ID. All roles can view. Honours {@code If-None-Match}.
      */
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping("{id}")
-    public SoapNote get(@PathVariable Long id) {
-        return svc.findById(id);
+    public ResponseEntity<SoapNote> get(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(svc.etag(id))) {
+            return null;
+        }
+        SoapNote found = svc.findById(id);
+        return ResponseEntity.ok()
+                .eTag(svc.etag(found))
+                .cacheControl(CacheControl.noCache())
+                .body(found);
     }
 
     /**
@@ -117,13 +140,50 @@ public class SoapNoteController {
      */
     @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
     @GetMapping
-    public Page<SoapNote> list(@RequestParam(defaultValue = "0") int page,
-                               @RequestParam(defaultValue = "10") int size,
-                               @RequestParam(required = false) String q) {
+    public Page<SoapNoteSummary> list(@RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "10") int size,
+                                      @RequestParam(required = false) String q) {
         Pageable pageable = PageRequest.of(page, size);
         return svc.findActive(q, pageable);
     }
 
+    /**
+     * Keyset mode: pass {@code after} (empty for the first page), then the returned
+     * {@code nextCursor}. Rows come in id order and no count query is run.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = {"after", "!fields"})
+    public KeysetSlice<SoapNoteSummary> listAfter(@RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String q) {
+        return svc.findActiveAfter(q, after, Keyset.size(size));
+    }
+
+    /**
+     * Only the attributes named in {@code fields}, e.g. {@code ?fields=id,patientName,dateOfSession,anotes},
+     * in page mode or, with {@code after}, keyset mode. Unknown names get 400.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(params = "fields")
+    public void listFields(@RequestParam String fields,
+                           @RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(required = false) String q,
+                           @RequestParam(required = false) String after,
+                           HttpServletResponse response) throws IOException {
+        sparse.writeList(SoapNoteRepository.SPARSE, fields, svc::sparseFilter, q, after, page, size, response);
+    }
+
+    /**
+     * One record with only the attributes named in {@code fields}.
+     */
+    @PreAuthorize("hasAnyRole('JUNIOR', 'SENIOR', 'ADMIN')")
+    @GetMapping(value = "{id}", params = "fields")
+    public void getFields(@PathVariable Long id, @RequestParam String fields, HttpServletResponse response)
+            throws IOException {
+        sparse.writeOne(SoapNoteRepository.SPARSE, fields, id, response);
+    }
+
     /**
      * Soft-delete a SOAP note by ID. Only SENIOR and ADMIN allowed.
      */
@@ -0,0 +1,15 @@
+package com.pies.soap.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published by {@code SoapNoteService} when a note starts or stops counting as a
+ * session of a therapist on a day: created, deleted, or moved to another date.
+ */
+public record SoapNoteChangedEvent(Type type, Long soapNoteId, Long therapistId, LocalDate dateOfSession) {
+
+    public enum Type {
+        CREATED,
+        DELETED
+    }
+}
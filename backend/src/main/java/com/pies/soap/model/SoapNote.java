@@ -53,4 +53,8 @@ public class SoapNote {
 
 
     private boolean activeStatus = true;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.pies.soap.payload;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * SOAP note without its free-text sections.
+ */
+public record SoapNoteSummary(Long id, Long patientId, String patientName, LocalDate dateOfSession,
+                              LocalTime timeOfSession, String typeOfSession, Long therapistId) {
+}
@@ -1,24 +1,39 @@
 package com.pies.soap.service;
 
 import com.pies.audit.service.AuditLogService;
+import com.pies.common.EntityTags;
+import com.pies.therapist.model.Therapist;
+import com.pies.patient.model.Patient;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
+import com.pies.live.LiveEvent;
+import com.pies.soap.event.SoapNoteChangedEvent;
 import com.pies.soap.model.SoapNote;
+import com.pies.soap.payload.SoapNoteSummary;
 import com.pies.soap.repository.SoapNoteRepository;
+import com.pies.search.NameIndex;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 public class SoapNoteService {
     private static final Logger logger = LoggerFactory.getLogger(SoapNoteService.class);
     private final SoapNoteRepository repo;
     private final AuditLogService audit;
+    private final NameIndex nameIndex;
+    private final ApplicationEventPublisher events;
 
     /*
     @Transactional
@@ -29,9 +44,15 @@ public class SoapNoteService {
     }*/
 
     @Transactional
-    public SoapNote update(Long id, SoapNote in) {
+    public SoapNote update(Long id, SoapNote in, Long requiredVersion) {
         var n = findById(id);
-        if (in.getDateOfSession() != null) n.setDateOfSession(in.getDateOfSession());
+        EntityTags.checkVersion(requiredVersion, n.getVersion());
+        if (in.getDateOfSession() != null && !in.getDateOfSession().equals(n.getDateOfSession())) {
+            // The session now counts on another day
+            publish(SoapNoteChangedEvent.Type.DELETED, n);
+            n.setDateOfSession(in.getDateOfSession());
+            publish(SoapNoteChangedEvent.Type.CREATED, n);
+        }
         if (in.getSessionLength() != null) n.setSessionLength(in.getSessionLength());
         if (in.getTimeOfSession() != null) n.setTimeOfSession(in.getTimeOfSession());
         if (in.getTypeOfSession() != null) n.setTypeOfSession(in.getTypeOfSession());
@@ -63,9 +84,65 @@ public class SoapNoteService {
         return n;
     }
 
-    public Page<SoapNote> findActive(String q, Pageable pageable) {
-        if (q == null || q.isBlank()) return repo.findByActiveStatusTrue(pageable);
-        return repo.search(q, pageable);
+    /**
+     * Entity tag of an active SOAP note, covering the embedded patient and
+     * therapists, read without loading the rows.
+     *
+     * @throws EntityNotFoundException if not found or inactive
+     */
+    public String etag(Long id) {
+        return repo.findVersions(id).stream().findFirst()
+                .map(v -> EntityTags.fromRow(id, v))
+                .orElseThrow(() -> new EntityNotFoundException("SOAP note " + id + " not found"));
+    }
+
+    /**
+     * Entity tag of a loaded SOAP note; matches {@link #etag(Long)}.
+     */
+    public String etag(SoapNote n) {
+        Patient patient = n.getPatient();
+        Therapist patientTherapist = patient == null ? null : patient.getTherapist();
+        return EntityTags.of(n.getId(), n.getVersion(),
+                patient == null ? null : patient.getVersion(),
+                patientTherapist == null ? null : patientTherapist.getVersion(),
+                n.getTherapist() == null ? null : n.getTherapist().getVersion());
+    }
+
+    public Page<SoapNoteSummary> findActive(String q, Pageable pageable) {
+        if (q == null || q.isBlank()) return repo.findSummaries(pageable);
+        return nameIndex.patients(q, false)
+                .map(ids -> ids.isEmpty() ? Page.<SoapNoteSummary>empty(pageable)
+                        : repo.findSummariesByPatientIds(ids, pageable))
+                .orElseGet(() -> repo.searchSummaries(q, pageable));
+    }
+
+    /**
+     * Keyset mode of {@link #findActive}: the page after the cursor in id order, without a count query.
+     */
+    public KeysetSlice<SoapNoteSummary> findActiveAfter(String q, String after, int size) {
+        long afterId = Keyset.afterId(after);
+        Pageable limit = Keyset.limit(size);
+        List<SoapNoteSummary> rows;
+        if (q == null || q.isBlank()) {
+            rows = repo.findSummariesAfter(afterId, limit);
+        } else {
+            rows = nameIndex.patients(q, false)
+                    .map(ids -> ids.isEmpty() ? List.<SoapNoteSummary>of()
+                            : repo.findSummariesByPatientIdsAfter(ids, afterId, limit))
+                    .orElseGet(() -> repo.searchSummariesAfter(q, afterId, limit));
+        }
+        return Keyset.slice(rows, size, SoapNoteSummary::id);
+    }
+
+    /**
+     * The restriction {@link #findActive} applies for {@code q}, for {@code ?fields=} reads.
+     */
+    public SparseQueries.Filter sparseFilter(String q) {
+        if (q == null || q.isBlank()) return SparseQueries.Filter.ALL;
+        return nameIndex.patients(q, false)
+                .map(ids -> ids.isEmpty() ? SparseQueries.Filter.NONE
+                        : SparseQueries.Filter.of(" and p.id in :ids", "ids", ids))
+                .orElseGet(() -> SparseQueries.Filter.of(SoapNoteRepository.NAME_MATCH, "q", q));
     }
 
     @Transactional
@@ -74,6 +151,7 @@ public class SoapNoteService {
         n.setActiveStatus(false);
         repo.save(n);
         audit.record("DELETE", "SoapNote", id);
+        publish(SoapNoteChangedEvent.Type.DELETED, n);
     }
 
     @Transactional
@@ -81,10 +159,19 @@ public class SoapNoteService {
         try {
             var saved = repo.save(n);
             audit.record("CREATE", "SoapNote", saved.getId());
+            publish(SoapNoteChangedEvent.Type.CREATED, saved);
+            events.publishEvent(new LiveEvent(LiveEvent.Type.SOAP_NOTE_CREATED, saved.getId(),
+                    saved.getTherapist() == null ? null : saved.getTherapist().getId(),
+                    saved.getPatient() == null ? null : saved.getPatient().getId()));
             return saved;
         } catch (DataIntegrityViolationException ex) {
             logger.error("DataIntegrityViolationException: {}", ex.getMessage(), ex);
             throw ex;  // Let global handler respond
         }
     }
-}
\ No newline at end of file
+
+    private void publish(SoapNoteChangedEvent.Type type, SoapNote n) {
+        events.publishEvent(new SoapNoteChangedEvent(type, n.getId(),
+                n.getTherapist() == null ? null : n.getTherapist().getId(), n.getDateOfSession()));
+    }
+}
@@ -1,9 +1,15 @@
 package com.pies.therapist.controller;
 
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.payload.TherapistSummary;
 import com.pies.therapist.service.TherapistService;
+import com.pies.therapist.payload.TherapistListItem;
+import com.pies.therapist.repository.TherapistRepository;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -14,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -26,6 +33,7 @@ import java.util.List;
 public class TherapistController {
 
     private final TherapistService svc;
+    private final SparseQueries sparse;
 
     /**
      * Simple response structure for standardized success messages.
@@ -79,11 +87,11 @@ public class TherapistController {
      * @param page Page number.
      * @param size Page size.
      * @param q    Search query (optional).
-     * @return Page of Therapist entities.
+     * @return Page of therapist list rows.
      */
     @PreAuthorize("hasAnyRole('ADMIN', 'SENIOR')")
     @GetMapping
-    public Page<Therapist> list(
+    public Page<TherapistListItem> list(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String q) {
@@ -91,6 +99,43 @@ public class TherapistController {
         return svc.findActive(q, pageable);
     }
 
+    /**
+     * Keyset mode: pass {@code after} (empty for the first page), then the returned
+     * {@code nextCursor}. Rows come in id order and no count query is run.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'SENIOR')")
+    @GetMapping(params = {"after", "!fields"})
+    public KeysetSlice<TherapistListItem> listAfter(@RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String q) {
+        return svc.findActiveAfter(q, after, Keyset.size(size));
+    }
+
+    /**
+     * Only the attributes named in {@code fields}, e.g. {@code ?fields=id,firstName,lastName,role},
+     * in page mode or, with {@code after}, keyset mode. Unknown names get 400.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'SENIOR')")
+    @GetMapping(params = "fields")
+    public void listFields(@RequestParam String fields,
+                           @RequestParam(defaultValue = "0") int page,
+                           @RequestParam(defaultValue = "10") int size,
+                           @RequestParam(required = false) String q,
+                           @RequestParam(required = false) String after,
+                           HttpServletResponse response) throws IOException {
+        sparse.writeList(TherapistRepository.SPARSE, fields, svc::sparseFilter, q, after, page, size, response);
+    }
+
+    /**
+     * One record with only the attributes named in {@code fields}.
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'SENIOR')")
+    @GetMapping(value = "{id}", params = "fields")
+    public void getFields(@PathVariable Long id, @RequestParam String fields, HttpServletResponse response)
+            throws IOException {
+        sparse.writeOne(TherapistRepository.SPARSE, fields, id, response);
+    }
+
     /**
      * Soft-deletes a therapist by ID.
      *
@@ -3,6 +3,8 @@ package com.pies.therapist.model;
 import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -10,6 +12,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.pies.patient.model.Patient;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -19,16 +22,20 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.persistence.Transient;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 /**
- * Persistent entity representing a therapist account.
+ * Persistent entity representing a therapist account. Held in the
+ * {@code therapists} second-level cache region.
  */
 @Entity
 @Table(name = "therapists")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "therapists")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -78,6 +85,26 @@ public class Therapist implements UserDetails {
      */
     private boolean enabled = true;
 
+    /**
+     * Incremented whenever issued tokens must stop being accepted
+     * (password change, role change, deactivation).
+     */
+    @JsonIgnore
+    @Column(name = "token_version", nullable = false)
+    private long tokenVersion;
+
+    /**
+     * SHA-256 of the calendar feed secret, or null when the feed is off.
+     */
+    @JsonIgnore
+    @Column(name = "calendar_feed_hash", length = 64, unique = true)
+    private String calendarFeedHash;
+
+    // Part of the entity tags of the records that embed the therapist
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     /* ===== UserDetails implementation ===== */
 
     @Override
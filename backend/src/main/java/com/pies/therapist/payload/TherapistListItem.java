@@ -0,0 +1,10 @@
+package com.pies.therapist.payload;
+
+import com.pies.therapist.model.TherapistRole;
+
+/**
+ * Row of the therapist management list; no credentials or token state.
+ */
+public record TherapistListItem(Long id, String firstName, String lastName, String username, String email,
+                                String phoneNumber, TherapistRole role, boolean enabled) {
+}
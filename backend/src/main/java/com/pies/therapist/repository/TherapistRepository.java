@@ -1,13 +1,19 @@
 package com.pies.therapist.repository;
 
+import com.pies.common.SparseFields;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.model.TherapistRole;
+import com.pies.therapist.payload.TherapistListItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,16 +27,78 @@ public interface TherapistRepository extends JpaRepository<Therapist, Long> {
      */
     Optional<Therapist> findByUsername(String username);
 
-    Page<Therapist> findByActiveStatusTrue(Pageable pageable);
+    /**
+     * List columns only, so a page is a single select
+     */
+    String LIST_ITEM = "select new com.pies.therapist.payload.TherapistListItem(t.id, t.firstName, t.lastName," +
+            " t.username, t.email, t.phoneNumber, t.role, t.enabled) from Therapist t";
+
+    String NAME_MATCH = " and (lower(t.firstName) like lower(concat('%', :q, '%'))" +
+            " or lower(t.lastName) like lower(concat('%', :q, '%')))";
+
+    /**
+     * Attributes offered to {@code ?fields=}; credentials are deliberately absent
+     */
+    SparseFields SPARSE = SparseFields.of("Therapist", "Therapist t", "t")
+            .field("id", "t.id")
+            .field("firstName", "t.firstName")
+            .field("lastName", "t.lastName")
+            .field("username", "t.username")
+            .field("email", "t.email")
+            .field("phoneNumber", "t.phoneNumber")
+            .field("role", "t.role")
+            .field("enabled", "t.enabled");
 
-    @Query("select t from Therapist t where t.activeStatus=true and " +
-            "(lower(t.firstName) like lower(concat('%', :q, '%')) " +
-            "or lower(t.lastName) like lower(concat('%', :q, '%')))")
-    Page<Therapist> search(@Param("q") String q, Pageable pageable);
+    @Query(value = LIST_ITEM + " where t.activeStatus = true",
+            countQuery = "select count(t) from Therapist t where t.activeStatus = true")
+    Page<TherapistListItem> findListItems(Pageable pageable);
+
+    @Query(value = LIST_ITEM + " where t.activeStatus = true" + NAME_MATCH,
+            countQuery = "select count(t) from Therapist t where t.activeStatus = true" + NAME_MATCH)
+    Page<TherapistListItem> searchListItems(@Param("q") String q, Pageable pageable);
+
+    @Query(value = LIST_ITEM + " where t.id in :ids and t.activeStatus = true",
+            countQuery = "select count(t) from Therapist t where t.id in :ids and t.activeStatus = true")
+    Page<TherapistListItem> findListItemsByIds(@Param("ids") Collection<Long> ids, Pageable pageable);
+
+    /**
+     * Rows for the in-memory name index: id, firstName, lastName, activeStatus
+     */
+    @Query("select t.id, t.firstName, t.lastName, t.activeStatus from Therapist t")
+    List<Object[]> findAllNames();
 
     long countByRoleAndActiveStatusTrue(TherapistRole role);
 
+    /**
+     * Served from the {@code active-therapists} query cache, which every committed
+     * therapist write invalidates
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "active-therapists")
+    })
     List<Therapist> findByActiveStatusTrue();
 
+    /**
+     * Current token version of an active therapist, used by the claims-only auth mode
+     */
+    @Query("select t.tokenVersion from Therapist t where t.id = :id and t.activeStatus = true")
+    Optional<Long> findActiveTokenVersion(@Param("id") Long id);
+
+    /**
+     * Active therapist whose calendar feed secret hashes to {@code hash}
+     */
+    @Query("select t.id from Therapist t where t.calendarFeedHash = :hash and t.activeStatus = true")
+    Optional<Long> findActiveIdByCalendarFeedHash(@Param("hash") String hash);
+
+    // Keyset (?after=) variants: seek on id, first page of size + 1, no count query
+
+    @Query(LIST_ITEM + " where t.activeStatus = true and t.id > :after order by t.id")
+    List<TherapistListItem> findListItemsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(LIST_ITEM + " where t.id in :ids and t.activeStatus = true order by t.id")
+    List<TherapistListItem> findListItemsByIdsOrderById(@Param("ids") Collection<Long> ids, Pageable pageable);
 
-}
\ No newline at end of file
+    @Query(LIST_ITEM + " where t.activeStatus = true" + NAME_MATCH + " and t.id > :after order by t.id")
+    List<TherapistListItem> searchListItemsAfter(@Param("q") String q, @Param("after") Long after, Pageable pageable);
+}
@@ -1,9 +1,17 @@
 package com.pies.therapist.service;
 
 import com.pies.audit.service.AuditLogService;
+import com.pies.auth.AuthCache;
+import com.pies.auth.RefreshTokenStore;
+import com.pies.auth.TokenRevocationList;
+import com.pies.common.Keyset;
+import com.pies.common.KeysetSlice;
+import com.pies.common.SparseQueries;
+import com.pies.search.NameIndex;
 import com.pies.therapist.model.Therapist;
 import com.pies.therapist.model.TherapistRole;
 import com.pies.therapist.repository.TherapistRepository;
+import com.pies.therapist.payload.TherapistListItem;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -26,6 +34,10 @@ public class TherapistService {
     private final TherapistRepository repo;
     private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
+    private final AuthCache authCache;
+    private final TokenRevocationList revocations;
+    private final RefreshTokenStore refreshTokens;
+    private final NameIndex nameIndex;
 
 
     /**
@@ -42,6 +54,7 @@ public class TherapistService {
         }
         therapist.setPasswordHash(passwordEncoder.encode(therapist.getRawPassword()));
         Therapist saved = repo.save(therapist);
+        nameIndex.therapistChanged(saved);
         auditLogService.record("CREATE", "Therapist", saved.getId());
         return saved;
     }
@@ -49,6 +62,7 @@ public class TherapistService {
     /**
      * Updates an existing therapist by ID.
      * Only selected fields are updatable.
+     * A password or role change bumps the token version, invalidating issued tokens.
      * Records audit log for update.
      *
      * @param id     Therapist ID.
@@ -66,10 +80,12 @@ public class TherapistService {
             entity.setEmail(update.getEmail());
         if (update.getPhoneNumber() != null)
             entity.setPhoneNumber(update.getPhoneNumber());
+        boolean revokeTokens = false;
         if (update.getRawPassword() != null && !update.getRawPassword().isBlank()) {
             entity.setPasswordHash(passwordEncoder.encode(update.getRawPassword()));
+            revokeTokens = true;
         }
-        if (update.getRole() != null) {
+        if (update.getRole() != null && update.getRole() != entity.getRole()) {
             if (entity.getRole() == TherapistRole.ADMIN && update.getRole() != TherapistRole.ADMIN) {
                 long admins = repo.countByRoleAndActiveStatusTrue(TherapistRole.ADMIN);
                 if (admins <= 1) {
@@ -77,9 +93,19 @@ public class TherapistService {
                 }
             }
             entity.setRole(update.getRole());
+            revokeTokens = true;
+        }
+        if (revokeTokens) {
+            entity.setTokenVersion(entity.getTokenVersion() + 1);
         }
         Therapist saved = repo.save(entity);
+        nameIndex.therapistChanged(saved);
         auditLogService.record("UPDATE", "Therapist", saved.getId());
+        authCache.evictUser(saved.getUsername());
+        if (revokeTokens) {
+            revocations.updateVersion(saved.getId(), saved.getTokenVersion());
+            refreshTokens.revokeAll(saved.getId());
+        }
         return saved;
     }
 
@@ -104,17 +130,55 @@ public class TherapistService {
      *
      * @param q        Search query (nullable).
      * @param pageable Paging information.
-     * @return Page of Therapist entities.
+     * @return Page of therapist list rows.
      */
-    public Page<Therapist> findActive(String q, Pageable pageable) {
+    public Page<TherapistListItem> findActive(String q, Pageable pageable) {
         if (q == null || q.isBlank()) {
-            return repo.findByActiveStatusTrue(pageable);
+            return repo.findListItems(pageable);
         }
-        return repo.search(q, pageable);
+        return nameIndex.therapists(q)
+                .map(ids -> ids.isEmpty() ? Page.<TherapistListItem>empty(pageable)
+                        : repo.findListItemsByIds(ids, pageable))
+                .orElseGet(() -> repo.searchListItems(q, pageable));
+    }
+
+    /**
+     * Keyset mode of {@link #findActive}: the page after the cursor in id order, without a count query.
+     *
+     * @param q     Search query (nullable).
+     * @param after Cursor from the previous page; empty for the first page.
+     * @param size  Page size.
+     * @return Slice of therapist list rows with the next cursor.
+     */
+    public KeysetSlice<TherapistListItem> findActiveAfter(String q, String after, int size) {
+        long afterId = Keyset.afterId(after);
+        Pageable limit = Keyset.limit(size);
+        List<TherapistListItem> rows;
+        if (q == null || q.isBlank()) {
+            rows = repo.findListItemsAfter(afterId, limit);
+        } else {
+            rows = nameIndex.therapists(q)
+                    .map(ids -> Keyset.idsAfter(ids, afterId, size))
+                    .map(ids -> ids.isEmpty() ? List.<TherapistListItem>of() : repo.findListItemsByIdsOrderById(ids, limit))
+                    .orElseGet(() -> repo.searchListItemsAfter(q, afterId, limit));
+        }
+        return Keyset.slice(rows, size, TherapistListItem::id);
+    }
+
+    /**
+     * The restriction {@link #findActive} applies for {@code q}, for {@code ?fields=} reads.
+     */
+    public SparseQueries.Filter sparseFilter(String q) {
+        if (q == null || q.isBlank()) return SparseQueries.Filter.ALL;
+        return nameIndex.therapists(q)
+                .map(ids -> ids.isEmpty() ? SparseQueries.Filter.NONE
+                        : SparseQueries.Filter.of(" and t.id in :ids", "ids", ids))
+                .orElseGet(() -> SparseQueries.Filter.of(TherapistRepository.NAME_MATCH, "q", q));
     }
 
     /**
      * Soft deletes a therapist by setting activeStatus to false.
+     * All tokens issued to the therapist are revoked.
      * Records audit log for delete.
      *
      * @param id Therapist ID.
@@ -123,8 +187,13 @@ public class TherapistService {
     public void delete(Long id) {
         Therapist therapist = findById(id);
         therapist.setActiveStatus(false);
+        therapist.setTokenVersion(therapist.getTokenVersion() + 1);
         repo.save(therapist);
+        nameIndex.therapistDeactivated(id);
         auditLogService.record("DELETE", "Therapist", id);
+        authCache.evictUser(therapist.getUsername());
+        revocations.revokeAll(id);
+        refreshTokens.revokeAll(id);
     }
 
     /**
@@ -0,0 +1,2 @@
+ALTER TABLE therapists
+    ADD COLUMN token_version BIGINT NOT NULL DEFAULT 0;
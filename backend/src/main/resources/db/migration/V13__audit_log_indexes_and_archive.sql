@@ -0,0 +1,17 @@
+-- Lookups by record ("who touched patient 123") and by user, newest first
+CREATE INDEX idx_audit_logs_entity_time ON audit_logs (entity, entity_id, `timestamp`);
+CREATE INDEX idx_audit_logs_user_time ON audit_logs (username, `timestamp`);
+CREATE INDEX idx_audit_logs_time ON audit_logs (`timestamp`);
+
+-- Rows older than the retention window are moved here by AuditArchiveJob
+CREATE TABLE audit_logs_archive (
+                                    id BIGINT PRIMARY KEY,
+                                    username VARCHAR(255),
+                                    action VARCHAR(255),
+                                    entity VARCHAR(255),
+                                    entity_id BIGINT,
+                                    `timestamp` TIMESTAMP NULL,
+                                    INDEX idx_audit_archive_entity_time (entity, entity_id, `timestamp`),
+                                    INDEX idx_audit_archive_user_time (username, `timestamp`),
+                                    INDEX idx_audit_archive_time (`timestamp`)
+);
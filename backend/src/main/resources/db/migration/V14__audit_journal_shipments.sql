@@ -0,0 +1,7 @@
+-- Journal segments already copied into audit_logs (see AuditJournalShipper)
+CREATE TABLE audit_journal_shipments (
+                                         segment_seq BIGINT PRIMARY KEY,
+                                         records     INT         NOT NULL,
+                                         last_hash   CHAR(64)    NOT NULL,
+                                         shipped_at  TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,13 @@
+-- Stored end time so overlap checks compare plain columns instead of DATE_ADD per row
+ALTER TABLE appointments
+    ADD COLUMN end_time DATETIME NULL AFTER duration_minutes;
+
+UPDATE appointments
+SET end_time = DATE_ADD(appointment_time, INTERVAL duration_minutes MINUTE);
+
+ALTER TABLE appointments
+    MODIFY end_time DATETIME NOT NULL;
+
+-- Calendar and overlap lookups per therapist and per patient
+CREATE INDEX idx_appointments_therapist_time ON appointments (therapist_id, appointment_time, end_time);
+CREATE INDEX idx_appointments_patient_time ON appointments (patient_id, appointment_time, end_time);
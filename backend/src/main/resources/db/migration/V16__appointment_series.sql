@@ -0,0 +1,18 @@
+-- Recurring bookings (weekly or every other week) created in one request
+CREATE TABLE appointment_series (
+                                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                    therapist_id BIGINT NOT NULL,
+                                    patient_id BIGINT NOT NULL,
+                                    first_start DATETIME NOT NULL,
+                                    duration_minutes INT NOT NULL,
+                                    interval_weeks INT NOT NULL,
+                                    occurrences INT NOT NULL,
+                                    notes TEXT,
+                                    active_status BOOLEAN NOT NULL DEFAULT TRUE,
+                                    CONSTRAINT fk_series_therapist FOREIGN KEY (therapist_id) REFERENCES therapists(id),
+                                    CONSTRAINT fk_series_patient   FOREIGN KEY (patient_id)   REFERENCES patients(id)
+);
+
+ALTER TABLE appointments
+    ADD COLUMN series_id BIGINT NULL,
+    ADD CONSTRAINT fk_appointments_series FOREIGN KEY (series_id) REFERENCES appointment_series(id);
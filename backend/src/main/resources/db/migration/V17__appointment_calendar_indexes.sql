@@ -0,0 +1,10 @@
+-- Calendar views filter by therapist or patient, active status and a time window, and
+-- read both ids and both times: these indexes cover the query so no row lookups are needed.
+-- They also serve the overlap checks, so they replace the V15 indexes.
+CREATE INDEX idx_appointments_therapist_calendar
+    ON appointments (therapist_id, active_status, appointment_time, end_time, patient_id);
+CREATE INDEX idx_appointments_patient_calendar
+    ON appointments (patient_id, active_status, appointment_time, end_time, therapist_id);
+
+DROP INDEX idx_appointments_therapist_time ON appointments;
+DROP INDEX idx_appointments_patient_time ON appointments;
@@ -0,0 +1,27 @@
+-- Reminders due before an appointment, written by the in-process scheduler for a
+-- delivery worker to pick up. One row per appointment and offset, so a reminder
+-- fired twice (restart, second node) is inserted once.
+CREATE TABLE appointment_reminders (
+                                       id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                       appointment_id BIGINT NOT NULL,
+                                       therapist_id BIGINT NOT NULL,
+                                       patient_id BIGINT NOT NULL,
+                                       appointment_time DATETIME NOT NULL,
+                                       offset_minutes INT NOT NULL,
+                                       due_at DATETIME NOT NULL,
+                                       created_at DATETIME NOT NULL,
+                                       sent_at DATETIME NULL,
+                                       CONSTRAINT uq_reminder_appointment_offset UNIQUE (appointment_id, offset_minutes),
+                                       CONSTRAINT fk_reminders_appointment FOREIGN KEY (appointment_id) REFERENCES appointments(id)
+);
+
+CREATE INDEX idx_reminders_unsent ON appointment_reminders (sent_at, due_at);
+
+-- Time up to which the scheduler has fired every reminder
+CREATE TABLE reminder_checkpoint (
+                                     id INT PRIMARY KEY,
+                                     fired_through DATETIME NOT NULL
+);
+
+-- Startup load of upcoming appointments
+CREATE INDEX idx_appointments_active_time ON appointments (active_status, appointment_time);
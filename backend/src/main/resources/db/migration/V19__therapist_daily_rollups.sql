@@ -0,0 +1,18 @@
+-- Per-therapist daily workload, maintained with each booking, cancellation and SOAP
+-- note so reports never aggregate the source tables. Appointments count on the day
+-- they start, SOAP notes on their session date.
+CREATE TABLE therapist_daily_rollups (
+                                         therapist_id BIGINT NOT NULL,
+                                         day DATE NOT NULL,
+                                         booked_minutes INT NOT NULL DEFAULT 0,
+                                         appointments INT NOT NULL DEFAULT 0,
+                                         cancellations INT NOT NULL DEFAULT 0,
+                                         sessions INT NOT NULL DEFAULT 0,
+                                         PRIMARY KEY (therapist_id, day),
+                                         CONSTRAINT fk_rollups_therapist FOREIGN KEY (therapist_id) REFERENCES therapists(id)
+);
+
+CREATE INDEX idx_rollups_day ON therapist_daily_rollups (day, therapist_id);
+
+-- Reconciliation aggregates SOAP notes per session date
+CREATE INDEX idx_soap_notes_session_day ON soap_notes (date_of_session, therapist_id, active_status);
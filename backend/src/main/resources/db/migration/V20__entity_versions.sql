@@ -0,0 +1,7 @@
+-- Optimistic-lock versions: bumped on every update, exposed as entity tags so
+-- clients can revalidate reads (If-None-Match) and guard edits (If-Match)
+ALTER TABLE patients ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE intake_forms ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE soap_notes ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE self_assessments ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE appointments ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
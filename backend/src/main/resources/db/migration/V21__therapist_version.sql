@@ -0,0 +1,3 @@
+-- Therapists are embedded in patient, intake, SOAP note and self-assessment
+-- responses, so their version is part of those records' entity tags
+ALTER TABLE therapists ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,21 @@
+-- V19 created the rollups empty and the nightly reconcile only covers recent days,
+-- so recompute every day from the source tables (same rules as
+-- UtilizationRollupService.rebuild). Replaces any rows written since V19.
+DELETE FROM therapist_daily_rollups;
+
+INSERT INTO therapist_daily_rollups (therapist_id, day, booked_minutes, appointments, cancellations, sessions)
+SELECT therapist_id, DATE(appointment_time),
+       SUM(CASE WHEN active_status THEN duration_minutes ELSE 0 END),
+       SUM(CASE WHEN active_status THEN 1 ELSE 0 END),
+       SUM(CASE WHEN active_status THEN 0 ELSE 1 END),
+       0
+FROM appointments
+WHERE therapist_id IS NOT NULL
+GROUP BY therapist_id, DATE(appointment_time);
+
+INSERT INTO therapist_daily_rollups (therapist_id, day, booked_minutes, appointments, cancellations, sessions)
+SELECT therapist_id, date_of_session, 0, 0, 0, COUNT(*)
+FROM soap_notes
+WHERE active_status = true AND therapist_id IS NOT NULL AND date_of_session IS NOT NULL
+GROUP BY therapist_id, date_of_session
+ON DUPLICATE KEY UPDATE sessions = VALUES(sessions);
@@ -0,0 +1,4 @@
+-- SHA-256 of the therapist's calendar feed secret; the secret itself is only
+-- shown once, in the subscription URL. NULL means no feed
+ALTER TABLE therapists ADD COLUMN calendar_feed_hash CHAR(64) NULL;
+CREATE UNIQUE INDEX ux_therapists_calendar_feed_hash ON therapists (calendar_feed_hash);
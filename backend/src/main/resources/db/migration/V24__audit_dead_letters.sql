@@ -0,0 +1,13 @@
+-- Audit events the database rejected even one row at a time (see AuditWriter),
+-- kept with the error so they can be fixed and replayed into audit_logs.
+-- Columns are wider than audit_logs' so a row that did not fit there fits here
+CREATE TABLE audit_dead_letters (
+                                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                    username TEXT,
+                                    action TEXT,
+                                    entity TEXT,
+                                    entity_id BIGINT,
+                                    `timestamp` TIMESTAMP NULL,
+                                    error TEXT,
+                                    failed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
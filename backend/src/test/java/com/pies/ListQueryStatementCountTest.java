@@ -0,0 +1,167 @@
+package com.pies;
+
+import com.pies.intake.model.IntakeForm;
+import com.pies.intake.model.IntakeFormHealthHistory;
+import com.pies.intake.repository.IntakeRepository;
+import com.pies.patient.model.Patient;
+import com.pies.patient.repository.PatientRepository;
+import com.pies.selfassessment.model.SelfAssessment;
+import com.pies.selfassessment.repository.SelfAssessmentRepository;
+import com.pies.soap.model.SoapNote;
+import com.pies.soap.repository.SoapNoteRepository;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import com.pies.therapist.repository.TherapistRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the list endpoints against N+1 loading: each page must come back in a
+ * select plus at most a count, however many rows and associations it covers.
+ * Runs on H2 with the schema generated from the entities, since the Flyway
+ * migrations are MySQL-specific.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ListQueryStatementCountTest {
+
+    private static final int ROWS = 40;
+    private static final Pageable PAGE = PageRequest.of(0, 25);
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private PatientRepository patients;
+    @Autowired
+    private TherapistRepository therapists;
+    @Autowired
+    private IntakeRepository intakes;
+    @Autowired
+    private SoapNoteRepository soapNotes;
+    @Autowired
+    private SelfAssessmentRepository selfAssessments;
+
+    private final List<Long> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        List<Therapist> staff = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Therapist t = new Therapist();
+            t.setFirstName("Tess" + i);
+            t.setLastName("Rapist");
+            t.setUsername("therapist" + i);
+            t.setRole(TherapistRole.JUNIOR);
+            staff.add(em.persist(t));
+        }
+        for (int i = 0; i < ROWS; i++) {
+            Therapist t = staff.get(i % staff.size());
+            Patient p = new Patient();
+            p.setFirstName("Pat" + i);
+            p.setLastName("Ient");
+            p.setTherapist(t);
+            em.persist(p);
+            patientIds.add(p.getId());
+
+            IntakeForm f = new IntakeForm();
+            f.setPatient(p);
+            f.setTherapist(t);
+            f.setDateSubmitted(LocalDate.of(2024, 1, 1).plusDays(i));
+            IntakeFormHealthHistory h = new IntakeFormHealthHistory();
+            h.setIntakeForm(f);
+            f.setHealthHistory(h);
+            em.persist(f);
+
+            SoapNote n = new SoapNote();
+            n.setPatient(p);
+            n.setTherapist(t);
+            n.setDateOfSession(LocalDate.of(2024, 2, 1).plusDays(i));
+            em.persist(n);
+
+            SelfAssessment s = new SelfAssessment();
+            s.setPatient(p);
+            s.setTherapist(t);
+            s.setDateOfSession(LocalDate.of(2024, 3, 1).plusDays(i));
+            em.persist(s);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void pagedListsUseOneSelectAndOneCount() {
+        assertPage(() -> intakes.findSummaries(PAGE));
+        assertPage(() -> intakes.searchSummaries("pat", PAGE));
+        assertPage(() -> intakes.findSummariesByPatientIds(patientIds, PAGE));
+        assertPage(() -> soapNotes.findSummaries(PAGE));
+        assertPage(() -> soapNotes.searchSummaries("pat", PAGE));
+        assertPage(() -> soapNotes.findSummariesByPatientIds(patientIds, PAGE));
+        assertPage(() -> selfAssessments.findSummaries(PAGE));
+        assertPage(() -> selfAssessments.searchSummaries("pat", PAGE));
+        assertPage(() -> selfAssessments.findSummariesByPatientIds(patientIds, PAGE));
+        assertPage(() -> patients.findSummaries(PAGE));
+        assertPage(() -> patients.searchSummaries("pat", PAGE));
+        assertPage(() -> patients.findSummariesByIds(patientIds, PAGE));
+        assertPage(() -> therapists.findListItems(PageRequest.of(0, 2)));
+    }
+
+    @Test
+    void keysetListsUseOneSelect() {
+        Pageable limit = PageRequest.of(0, 26);
+        assertSingleSelect(() -> intakes.findSummariesAfter(0L, limit));
+        assertSingleSelect(() -> intakes.searchSummariesAfter("pat", 0L, limit));
+        assertSingleSelect(() -> intakes.findSummariesByPatientIdsAfter(patientIds, 0L, limit));
+        assertSingleSelect(() -> soapNotes.findSummariesAfter(0L, limit));
+        assertSingleSelect(() -> soapNotes.searchSummariesAfter("pat", 0L, limit));
+        assertSingleSelect(() -> soapNotes.findSummariesByPatientIdsAfter(patientIds, 0L, limit));
+        assertSingleSelect(() -> selfAssessments.findSummariesAfter(0L, limit));
+        assertSingleSelect(() -> selfAssessments.searchSummariesAfter("pat", 0L, limit));
+        assertSingleSelect(() -> selfAssessments.findSummariesByPatientIdsAfter(patientIds, 0L, limit));
+        assertSingleSelect(() -> patients.findSummariesAfter(0L, limit));
+        assertSingleSelect(() -> patients.searchSummariesAfter("pat", 0L, limit));
+        assertSingleSelect(() -> patients.findSummariesByIdsOrderById(patientIds, limit));
+        assertSingleSelect(() -> therapists.findListItemsAfter(0L, limit));
+    }
+
+    private void assertPage(Supplier<Page<?>> call) {
+        Statistics stats = statistics();
+        Page<?> page = call.get();
+        assertThat(page.getContent()).isNotEmpty();
+        assertThat(page.getTotalElements()).isGreaterThan(page.getContent().size());
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    private void assertSingleSelect(Supplier<List<?>> call) {
+        Statistics stats = statistics();
+        assertThat(call.get()).isNotEmpty();
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        em.clear();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+}
@@ -0,0 +1,143 @@
+package com.pies.appointment.index;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Interval trees against a linear scan over 1,000,000 historical appointments
+ * spread over 200 therapists. The scan is what the overlap query did per therapist
+ * without an index on (therapist_id, appointment_time).
+ */
+class IntervalTreeBenchmarkTest {
+
+    private static final int APPOINTMENTS = 1_000_000;
+    private static final int THERAPISTS = 200;
+    private static final long HOUR = 3600;
+
+    private static IntervalTree[] trees;
+    private static List<List<long[]>> history;
+
+    @BeforeAll
+    static void load() {
+        Random rnd = new Random(7);
+        trees = new IntervalTree[THERAPISTS];
+        history = new ArrayList<>();
+        for (int t = 0; t < THERAPISTS; t++) {
+            trees[t] = new IntervalTree();
+            history.add(new ArrayList<>());
+        }
+        // Each therapist has one slot per hour, 8 hours a day, going back years
+        for (long id = 0; id < APPOINTMENTS; id++) {
+            int t = (int) (id % THERAPISTS);
+            long slot = id / THERAPISTS;
+            long day = slot / 8;
+            long start = day * 24 * HOUR + (9 + slot % 8) * HOUR;
+            long end = start + (rnd.nextBoolean() ? HOUR : HOUR / 2);
+            trees[t].insert(id, start, end);
+            history.get(t).add(new long[]{id, start, end});
+        }
+    }
+
+    @Test
+    void matchesLinearScan() {
+        Random rnd = new Random(11);
+        long span = (long) (APPOINTMENTS / THERAPISTS / 8 + 1) * 24 * HOUR;
+        for (int i = 0; i < 20_000; i++) {
+            int t = rnd.nextInt(THERAPISTS);
+            long start = (long) (rnd.nextDouble() * span);
+            long end = start + (1 + rnd.nextInt(8)) * 15 * 60;
+            assertThat(trees[t].overlaps(start, end)).isEqualTo(scan(history.get(t), start, end));
+            if (i % 10 == 0) {
+                assertThat(trees[t].overlapping(start, end)).map(IntervalTree.Interval::id)
+                        .containsExactlyInAnyOrderElementsOf(scanIds(history.get(t), start, end));
+            }
+        }
+    }
+
+    @Test
+    void removeKeepsTreeConsistent() {
+        IntervalTree tree = new IntervalTree();
+        List<long[]> live = new ArrayList<>();
+        Random rnd = new Random(3);
+        for (long id = 0; id < 5_000; id++) {
+            long start = rnd.nextInt(100_000);
+            long[] iv = {id, start, start + 1 + rnd.nextInt(500)};
+            tree.insert(iv[0], iv[1], iv[2]);
+            live.add(iv);
+        }
+        for (int i = 0; i < 2_500; i++) {
+            long[] iv = live.remove(rnd.nextInt(live.size()));
+            assertThat(tree.remove(iv[0], iv[1])).isTrue();
+        }
+        assertThat(tree.size()).isEqualTo(live.size());
+        for (int i = 0; i < 5_000; i++) {
+            long start = rnd.nextInt(100_000);
+            long end = start + 1 + rnd.nextInt(300);
+            assertThat(tree.overlaps(start, end)).isEqualTo(scan(live, start, end));
+            assertThat(tree.overlapping(start, end)).hasSize(
+                    (int) live.stream().filter(iv -> iv[1] < end && iv[2] > start).count());
+        }
+    }
+
+    /**
+     * Opt-in timing run: {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstLinearScan() {
+        Random rnd = new Random(5);
+        long span = (long) (APPOINTMENTS / THERAPISTS / 8 + 1) * 24 * HOUR;
+        int queries = 20_000;
+        int[] therapist = new int[queries];
+        long[] starts = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            therapist[i] = rnd.nextInt(THERAPISTS);
+            starts[i] = span - (long) (rnd.nextDouble() * 30 * 24 * HOUR);
+        }
+        // Warm-up
+        for (int i = 0; i < queries; i++) {
+            trees[therapist[i]].overlaps(starts[i], starts[i] + HOUR);
+        }
+
+        long t0 = System.nanoTime();
+        boolean[] treeHits = new boolean[queries];
+        for (int i = 0; i < queries; i++) {
+            treeHits[i] = trees[therapist[i]].overlaps(starts[i], starts[i] + HOUR);
+        }
+        long t1 = System.nanoTime();
+        int scanQueries = 2_000;
+        boolean[] scanHits = new boolean[scanQueries];
+        for (int i = 0; i < scanQueries; i++) {
+            scanHits[i] = scan(history.get(therapist[i]), starts[i], starts[i] + HOUR);
+        }
+        long t2 = System.nanoTime();
+
+        for (int i = 0; i < scanQueries; i++) {
+            assertThat(treeHits[i]).as("query %d", i).isEqualTo(scanHits[i]);
+        }
+        System.out.printf("%d appointments: interval tree %.2f us/check, linear scan of therapist history %.2f us/check%n",
+                APPOINTMENTS, (t1 - t0) / 1000.0 / queries, (t2 - t1) / 1000.0 / scanQueries);
+    }
+
+    private static List<Long> scanIds(List<long[]> intervals, long start, long end) {
+        List<Long> ids = new ArrayList<>();
+        for (long[] iv : intervals) {
+            if (iv[1] < end && iv[2] > start) ids.add(iv[0]);
+        }
+        return ids;
+    }
+
+    private static boolean scan(List<long[]> intervals, long start, long end) {
+        for (long[] iv : intervals) {
+            if (iv[1] < end && iv[2] > start) return true;
+        }
+        return false;
+    }
+}
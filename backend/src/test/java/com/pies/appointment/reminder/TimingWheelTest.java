@@ -0,0 +1,132 @@
+package com.pies.appointment.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The wheel driven tick by tick, as the scheduler's clock would. A small wheel
+ * (4 slots, 3 levels, 64 ticks of span) makes every level wrap and cascade many
+ * times within a short run.
+ */
+class TimingWheelTest {
+
+    private static final int SLOT_BITS = 2;
+    private static final int LEVELS = 3;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    @Test
+    void levelZeroEntriesFireOnTheirTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, 0);
+        for (int t = 0; t < 4; t++) {
+            wheel.schedule("k" + t, t);
+        }
+        for (int t = 0; t < 4; t++) {
+            assertThat(wheel.advance(t)).containsExactly("k" + t);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void everyEntryFiresExactlyOnItsTickAcrossCascades() {
+        Random rnd = new Random(3);
+        for (long start : new long[]{0, 1, 7, 63, 64, 1000}) {
+            TimingWheel<Integer> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, start);
+            Map<Long, List<Integer>> expected = new HashMap<>();
+            for (int k = 0; k < 500; k++) {
+                long deadline = start + rnd.nextInt((int) SPAN);
+                wheel.schedule(k, deadline);
+                expected.computeIfAbsent(deadline, d -> new ArrayList<>()).add(k);
+            }
+            for (long t = start; t < start + SPAN; t++) {
+                assertThat(wheel.advance(t))
+                        .as("tick %d from start %d", t, start)
+                        .containsExactlyInAnyOrderElementsOf(expected.getOrDefault(t, List.of()));
+            }
+            assertThat(wheel.size()).isZero();
+        }
+    }
+
+    @Test
+    void entriesAddedWhileRunningFireOnTheirTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, 0);
+        wheel.advance(13);
+        // Filed relative to tick 14, straddling the next level-1 and level-2 wraps
+        wheel.schedule("a", 16);
+        wheel.schedule("b", 31);
+        wheel.schedule("c", 64);
+        wheel.schedule("d", 77);
+        Map<Long, String> fired = new HashMap<>();
+        for (long t = 14; t <= 80; t++) {
+            for (String k : wheel.advance(t)) {
+                fired.put(t, k);
+            }
+        }
+        assertThat(fired).containsExactlyInAnyOrderEntriesOf(Map.of(16L, "a", 31L, "b", 64L, "c", 77L, "d"));
+    }
+
+    @Test
+    void cancelledEntriesNeverFire() {
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, 0);
+        wheel.schedule("soon", 2);
+        wheel.schedule("later", 40);
+        assertThat(wheel.cancel("soon")).isTrue();
+        assertThat(wheel.cancel("absent")).isFalse();
+
+        // "later" has cascaded from level 2 by now; cancelling still drops it
+        assertThat(wheel.advance(33)).isEmpty();
+        assertThat(wheel.cancel("later")).isTrue();
+        assertThat(wheel.advance(SPAN * 2)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, 0);
+        wheel.schedule("k", 30);
+        wheel.schedule("k", 5);
+        assertThat(wheel.advance(5)).containsExactly("k");
+        assertThat(wheel.advance(40)).isEmpty();
+
+        wheel.schedule("k", 45);
+        wheel.schedule("k", 50);
+        assertThat(wheel.advance(45)).isEmpty();
+        assertThat(wheel.advance(50)).containsExactly("k");
+    }
+
+    @Test
+    void deadlinesPastTheTopLevelWaitUntilDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, 0);
+        long far = SPAN * 10 + 3;
+        wheel.schedule("far", far);
+        for (long t = 0; t < far; t++) {
+            assertThat(wheel.advance(t)).as("tick %d", t).isEmpty();
+        }
+        assertThat(wheel.contains("far")).isTrue();
+        assertThat(wheel.advance(far)).containsExactly("far");
+    }
+
+    @Test
+    void catchingUpFromACheckpointFiresMissedEntriesInDeadlineOrder() {
+        // Restarted at the checkpoint tick; the clock is already well past it
+        long checkpoint = 100;
+        TimingWheel<String> wheel = new TimingWheel<>(SLOT_BITS, LEVELS, checkpoint);
+        wheel.schedule("c", checkpoint + 50);
+        wheel.schedule("a", checkpoint + 1);
+        wheel.schedule("b", checkpoint + 9);
+        wheel.schedule("future", checkpoint + 500);
+
+        assertThat(wheel.advance(checkpoint + 60)).containsExactly("a", "b", "c");
+        assertThat(wheel.nextTick()).isEqualTo(checkpoint + 61);
+        // A deadline already passed fires on the next tick processed
+        wheel.schedule("late", checkpoint);
+        assertThat(wheel.advance(checkpoint + 61)).containsExactly("late");
+        assertThat(wheel.advance(checkpoint + 500)).containsExactly("future");
+    }
+}
@@ -0,0 +1,192 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.index.AppointmentIndex;
+import com.pies.appointment.payload.AppointmentCreateRequest;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.audit.service.AuditLogService;
+import com.pies.common.ConflictException;
+import com.pies.patient.model.Patient;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The {@code SELECT ... FOR UPDATE} row locks that serialize bookings across
+ * nodes, run against a real database: H2 in MySQL mode, committing for real.
+ * Each "node" is a separate {@link AppointmentService} with its own in-JVM
+ * stripes and a cluster-mode index, so only the row locks stand between them.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.url=jdbc:h2:mem:rowlocks;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentRowLockTest {
+
+    private static final LocalDateTime SLOT = LocalDateTime.now().plusDays(7).withHour(9).withMinute(0)
+            .withSecond(0).withNano(0);
+
+    @Autowired
+    private AppointmentRepository repo;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private TransactionTemplate tx;
+    private Long therapistId;
+    private final List<Long> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        tx = new TransactionTemplate(txManager);
+        tx.executeWithoutResult(status -> {
+            Therapist t = new Therapist();
+            t.setFirstName("Tess");
+            t.setLastName("Rapist");
+            t.setUsername("therapist");
+            t.setRole(TherapistRole.JUNIOR);
+            em.persist(t);
+            therapistId = t.getId();
+            for (int i = 0; i < 8; i++) {
+                Patient p = new Patient();
+                p.setFirstName("Pat" + i);
+                p.setLastName("Ient");
+                p.setTherapist(t);
+                em.persist(p);
+                patientIds.add(p.getId());
+            }
+        });
+    }
+
+    @AfterEach
+    void clean() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Appointment").executeUpdate();
+            em.createQuery("delete from Patient").executeUpdate();
+            em.createQuery("delete from Therapist").executeUpdate();
+        });
+    }
+
+    @Test
+    void therapistRowLockBlocksUntilCommit() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> holder = pool.submit(() -> tx.executeWithoutResult(status -> {
+                assertThat(repo.lockTherapistRow(therapistId)).isPresent();
+                locked.countDown();
+                await(release);
+            }));
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<Boolean> waiter = pool.submit(() -> tx.execute(status -> repo.lockTherapistRow(therapistId).isPresent()));
+            assertThatThrownBy(() -> waiter.get(300, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void missingRowsAreNotLocked() {
+        Boolean therapist = tx.execute(status -> repo.lockTherapistRow(-1L).isPresent());
+        Boolean patient = tx.execute(status -> repo.lockPatientRow(-1L).isPresent());
+        assertThat(therapist).isFalse();
+        assertThat(patient).isFalse();
+    }
+
+    @Test
+    void concurrentNodesBookASlotOnce() throws Exception {
+        AppointmentService[] nodes = {node(), node()};
+        int attempts = patientIds.size();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(attempts);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                AppointmentService node = nodes[i % nodes.length];
+                var req = new AppointmentCreateRequest(therapistId, patientIds.get(i), SLOT.plusMinutes(15L * (i % 3)),
+                        60, null);
+                results.add(pool.submit(() -> {
+                    await(start);
+                    return node.create(req);
+                }));
+            }
+            start.countDown();
+            int booked = 0;
+            for (Future<?> f : results) {
+                try {
+                    f.get(30, TimeUnit.SECONDS);
+                    booked++;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(ConflictException.class);
+                }
+            }
+            assertThat(booked).isEqualTo(1);
+            assertThat(repo.existsTherapistOverlap(therapistId, SLOT, SLOT.plusHours(2))).isTrue();
+            assertThat(repo.count()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void overlappingBookingIsAConflict() {
+        AppointmentService node = node();
+        node.create(new AppointmentCreateRequest(therapistId, patientIds.get(0), SLOT, 60, null));
+        assertThatThrownBy(() -> node.create(
+                new AppointmentCreateRequest(therapistId, patientIds.get(1), SLOT.plusMinutes(30), 60, null)))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("Therapist time conflict.");
+    }
+
+    private AppointmentService node() {
+        AppointmentIndex index = new AppointmentIndex(repo, Duration.ofDays(1), true);
+        return new AppointmentService(repo, mock(AuditLogService.class), new BookingLocks(16), tx, index, event -> {
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("latch timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.event.AppointmentChangedEvent;
+import com.pies.appointment.index.AppointmentIndex;
+import com.pies.appointment.model.Appointment;
+import com.pies.appointment.payload.AppointmentCreateRequest;
+import com.pies.appointment.repository.AppointmentRepository;
+import com.pies.audit.service.AuditLogService;
+import com.pies.common.AfterCommit;
+import com.pies.common.ConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many threads booking a handful of therapists and patients over the same few
+ * hours. The repository sleeps between the overlap check and the insert to widen
+ * the race window; the stored bookings must still never overlap.
+ */
+class AppointmentServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 4_000;
+    private static final LocalDateTime DAY = LocalDateTime.now().plusDays(7).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+    private final List<Appointment> stored = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private AppointmentService service;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository repo = mock(AppointmentRepository.class);
+        when(repo.lockTherapistRow(anyLong())).thenReturn(Optional.of(1L));
+        when(repo.lockPatientRow(anyLong())).thenReturn(Optional.of(1L));
+        when(repo.findActiveIntervalsEndingAfter(any())).thenReturn(List.of());
+        when(repo.save(any(Appointment.class))).thenAnswer(inv -> {
+            Appointment a = inv.getArgument(0);
+            Thread.sleep(0, 200_000);
+            a.setId(ids.incrementAndGet());
+            a.setEndTime(a.getAppointmentTime().plusMinutes(a.getDurationMinutes()));
+            stored.add(a);
+            return a;
+        });
+
+        AppointmentIndex index = new AppointmentIndex(repo, Duration.ofDays(1), false);
+        index.load();
+        // Events reach the index after commit, as with @TransactionalEventListener
+        service = new AppointmentService(repo, mock(AuditLogService.class), new BookingLocks(16),
+                new TransactionTemplate(new InMemoryTransactionManager()), index,
+                event -> AfterCommit.run(() -> index.on((AppointmentChangedEvent) event)));
+    }
+
+    @Test
+    void concurrentBookingsNeverOverlap() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            long seed = i;
+            pool.execute(() -> {
+                Random rnd = new Random(seed);
+                var req = new AppointmentCreateRequest(1L + rnd.nextInt(3), 100L + rnd.nextInt(20),
+                        DAY.plusMinutes(15L * rnd.nextInt(32)), 15 * (1 + rnd.nextInt(4)), null);
+                try {
+                    start.await();
+                    service.create(req);
+                    booked.incrementAndGet();
+                } catch (ConflictException e) {
+                    conflicts.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(booked.get() + conflicts.get()).isEqualTo(ATTEMPTS);
+        assertThat(booked.get()).isEqualTo(stored.size()).isPositive();
+        for (int i = 0; i < stored.size(); i++) {
+            for (int j = i + 1; j < stored.size(); j++) {
+                Appointment a = stored.get(i);
+                Appointment b = stored.get(j);
+                boolean overlap = a.getAppointmentTime().isBefore(b.getEndTime())
+                        && b.getAppointmentTime().isBefore(a.getEndTime());
+                if (overlap) {
+                    assertThat(a.getTherapistId()).as("double-booked therapist").isNotEqualTo(b.getTherapistId());
+                    assertThat(a.getPatientId()).as("double-booked patient").isNotEqualTo(b.getPatientId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Transaction manager without a resource; it only drives transaction synchronization.
+     */
+    private static class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.pies.appointment.service;
+
+import com.pies.appointment.controller.AppointmentController;
+import com.pies.common.ApiExceptionHandler;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The calendar feed is opened by its secret alone: a wrong, replaced or revoked
+ * secret is a 404, whatever therapist it once belonged to.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(ICalFeedService.class)
+class ICalFeedSecretTest {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private ICalFeedService icalSvc;
+
+    private MockMvc mvc;
+    private Long therapistId;
+
+    @BeforeEach
+    void setUp() {
+        Therapist t = new Therapist();
+        t.setFirstName("Tess");
+        t.setLastName("Rapist");
+        t.setUsername("therapist");
+        t.setRole(TherapistRole.JUNIOR);
+        therapistId = em.persistAndFlush(t).getId();
+        mvc = MockMvcBuilders.standaloneSetup(new AppointmentController(mock(AppointmentService.class),
+                        mock(AppointmentSeriesService.class), mock(AvailabilityService.class),
+                        mock(AppointmentCalendarService.class), icalSvc))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void issuedSecretOpensTheFeed() throws Exception {
+        String secret = icalSvc.issueSecret(therapistId);
+        em.flush();
+
+        assertThat(icalSvc.therapistFor(secret)).contains(therapistId);
+        String etag = mvc.perform(get("/appointments/feed/{secret}/calendar.ics", secret))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/appointments/feed/{secret}/calendar.ics", secret).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void wrongSecretIsNotFound() throws Exception {
+        icalSvc.issueSecret(therapistId);
+        em.flush();
+
+        assertThat(icalSvc.therapistFor("not-the-secret")).isEmpty();
+        assertThat(icalSvc.therapistFor(" ")).isEmpty();
+        mvc.perform(get("/appointments/feed/{secret}/calendar.ics", "not-the-secret"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void revokedAndReplacedSecretsAreNotFound() throws Exception {
+        String first = icalSvc.issueSecret(therapistId);
+        em.flush();
+        String second = icalSvc.issueSecret(therapistId);
+        em.flush();
+
+        assertThat(icalSvc.therapistFor(first)).isEmpty();
+        assertThat(icalSvc.therapistFor(second)).contains(therapistId);
+        mvc.perform(get("/appointments/feed/{secret}/calendar.ics", first))
+                .andExpect(status().isNotFound());
+
+        icalSvc.revokeSecret(therapistId);
+        em.flush();
+
+        assertThat(icalSvc.therapistFor(second)).isEmpty();
+        mvc.perform(get("/appointments/feed/{secret}/calendar.ics", second))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deactivatedTherapistsFeedIsNotFound() {
+        String secret = icalSvc.issueSecret(therapistId);
+        em.find(Therapist.class, therapistId).setActiveStatus(false);
+        em.flush();
+
+        assertThat(icalSvc.therapistFor(secret)).isEmpty();
+    }
+}
@@ -0,0 +1,218 @@
+package com.pies.audit.journal;
+
+import com.pies.audit.model.AuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hash chain, segment linking, crash recovery and shipping of the journal,
+ * on a temporary directory with segments small enough to roll every few records.
+ */
+class AuditJournalTest {
+
+    private static final int SEGMENT_BYTES = 1024;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AuditJournal journal;
+
+    @AfterEach
+    void close() throws IOException {
+        if (journal != null) journal.close();
+    }
+
+    @Test
+    void recordsChainAcrossSegments() throws IOException {
+        journal = open(Duration.ofHours(1));
+        for (int i = 0; i < 40; i++) {
+            journal.append(log(i));
+        }
+
+        List<AuditJournal.SegmentStatus> all = journal.verifyAll();
+        assertThat(all).hasSizeGreaterThan(2);
+        assertThat(all).allMatch(s -> s.valid() && s.chained());
+        assertThat(all.stream().mapToInt(AuditJournal.SegmentStatus::records).sum()).isEqualTo(40);
+        assertThat(all).extracting(AuditJournal.SegmentStatus::sequence).isSorted();
+
+        List<AuditLog> read = new ArrayList<>();
+        for (Path p : journal.sealedSegments()) {
+            read.addAll(JournalSegment.readAll(p));
+        }
+        assertThat(read).isNotEmpty();
+        for (int i = 0; i < read.size(); i++) {
+            assertThat(read.get(i).getEntityId()).isEqualTo(i);
+            assertThat(read.get(i).getUsername()).isEqualTo("user" + i);
+        }
+    }
+
+    @Test
+    void tamperingIsReportedAndNotRepaired() throws IOException {
+        journal = open(Duration.ofHours(1));
+        for (int i = 0; i < 40; i++) {
+            journal.append(log(i));
+        }
+        journal.close();
+        List<Path> segments = files(AuditJournal.ACTIVE_SUFFIX);
+        // A changed payload byte in the first record of a sealed segment
+        flipByte(segments.get(0), JournalSegment.HEADER_BYTES + 4 + 10);
+        // A header that no longer points at its predecessor's last hash
+        flipByte(segments.get(2), 16);
+
+        journal = open(Duration.ofHours(1));
+        List<AuditJournal.SegmentStatus> all = journal.verifyAll();
+        assertThat(all.get(0).valid()).isFalse();
+        assertThat(all.get(0).badOffset()).isEqualTo(JournalSegment.HEADER_BYTES);
+        assertThat(all.get(1).valid()).isTrue();
+        assertThat(all.get(2).chained()).isFalse();
+        assertThat(registry.counter("audit.journal.truncated").count()).isZero();
+    }
+
+    @Test
+    void tornTailIsCutOffOnOpen() throws IOException {
+        journal = open(Duration.ofHours(1));
+        for (int i = 0; i < 3; i++) {
+            journal.append(log(i));
+        }
+        journal.close();
+        Path segment = files(AuditJournal.ACTIVE_SUFFIX).get(0);
+        long end = JournalSegment.verify(segment).endOffset();
+        // Length marker reached the disk, payload and hash did not
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, 60), end);
+        }
+        assertThat(JournalSegment.verify(segment).valid()).isFalse();
+
+        journal = open(Duration.ofHours(1));
+        assertThat(registry.counter("audit.journal.truncated").count()).isEqualTo(1);
+        journal.append(log(3));
+        List<AuditJournal.SegmentStatus> all = journal.verifyAll();
+        assertThat(all).singleElement().satisfies(s -> {
+            assertThat(s.valid()).isTrue();
+            assertThat(s.records()).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void tornHeaderIsRebuiltFromThePreviousSegment() throws IOException {
+        journal = open(Duration.ofHours(1));
+        for (int i = 0; i < 15; i++) {
+            journal.append(log(i));
+        }
+        journal.close();
+        List<Path> segments = files(AuditJournal.ACTIVE_SUFFIX);
+        Path last = segments.get(segments.size() - 1);
+        try (FileChannel ch = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(JournalSegment.HEADER_BYTES), 0);
+        }
+
+        journal = open(Duration.ofHours(1));
+        journal.append(log(15));
+        List<AuditJournal.SegmentStatus> all = journal.verifyAll();
+        assertThat(all).allMatch(s -> s.valid() && s.chained());
+        assertThat(all.get(all.size() - 1).sequence()).isEqualTo(segments.size());
+        assertThat(all.get(all.size() - 1).records()).isEqualTo(1);
+    }
+
+    @Test
+    void shippedSegmentsStayVerifiableAndChained() throws Exception {
+        journal = open(Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            journal.append(log(i));
+        }
+        Thread.sleep(5);
+        // Past the maximum age: the active segment is sealed and a new one started
+        List<Path> sealed = journal.sealedSegments();
+        assertThat(sealed).hasSize(1);
+        journal.markShipped(sealed.get(0));
+        journal.append(log(5));
+        Thread.sleep(5);
+
+        assertThat(files(AuditJournal.SHIPPED_SUFFIX)).hasSize(1);
+        assertThat(journal.sealedSegments()).hasSize(1);
+        List<AuditJournal.SegmentStatus> all = journal.verifyAll();
+        assertThat(all).hasSize(3);
+        assertThat(all.get(0).file()).endsWith(AuditJournal.SHIPPED_SUFFIX);
+        assertThat(all).allMatch(s -> s.valid() && s.chained());
+    }
+
+    @Test
+    void verifyingWhileAppendingAndShippingStaysValid() throws Exception {
+        journal = open(Duration.ZERO);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    journal.append(log(i));
+                    if (i % 7 == 0) {
+                        for (Path p : journal.sealedSegments()) {
+                            journal.markShipped(p);
+                        }
+                    }
+                }
+                return null;
+            });
+            int checks = 0;
+            while (!writer.isDone() || checks == 0) {
+                assertThat(journal.verifyAll()).allMatch(s -> s.valid() && s.chained());
+                checks++;
+            }
+            writer.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private AuditJournal open(Duration maxSegmentAge) throws IOException {
+        AuditJournal j = new AuditJournal(dir.toString(), SEGMENT_BYTES, maxSegmentAge, registry);
+        j.open();
+        return j;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private static void flipByte(Path file, long offset) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 0x5a));
+            ch.write(b.rewind(), offset);
+        }
+    }
+
+    private static AuditLog log(long i) {
+        AuditLog log = new AuditLog();
+        log.setUsername("user" + i);
+        log.setAction("UPDATE");
+        log.setEntity("Patient");
+        log.setEntityId(i);
+        log.setTimestamp(LocalDateTime.of(2026, 1, 1, 9, 0).plusSeconds(i));
+        return log;
+    }
+}
@@ -0,0 +1,98 @@
+package com.pies.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Principal caching around account changes, and token caching until expiry.
+ */
+class AuthCacheTest {
+
+    private final AuthCache cache = new AuthCache(new SimpleMeterRegistry(), 100, 100, Duration.ofMinutes(5));
+
+    @Test
+    void principalIsCachedUntilEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.principal("tess", u -> user(u, "ROLE_JUNIOR", loads));
+        cache.principal("tess", u -> user(u, "ROLE_JUNIOR", loads));
+        assertThat(loads).hasValue(1);
+
+        cache.evictUser("tess");
+        UserDetails reloaded = cache.principal("tess", u -> user(u, "ROLE_SENIOR", loads));
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.getAuthorities()).extracting(a -> a.getAuthority()).containsExactly("ROLE_SENIOR");
+    }
+
+    @Test
+    void loadThatRacesAnEvictionIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Read the account before the change committed ...
+            Future<UserDetails> stale = pool.submit(() -> cache.principal("tess", u -> {
+                loading.countDown();
+                await(release);
+                return User.withUsername(u).password("x").authorities("ROLE_JUNIOR").build();
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            // ... and the change's eviction runs before that load is cached
+            Future<?> eviction = pool.submit(() -> cache.evictUser("tess"));
+            release.countDown();
+            assertThat(stale.get(5, TimeUnit.SECONDS).isEnabled()).isTrue();
+            eviction.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        UserDetails next = cache.principal("tess",
+                u -> User.withUsername(u).password("x").authorities("ROLE_JUNIOR").disabled(true).build());
+        assertThat(next.isEnabled()).isFalse();
+    }
+
+    @Test
+    void tokenIsVerifiedOnceUntilItExpires() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        long soon = System.currentTimeMillis() + 500;
+        for (int i = 0; i < 3; i++) {
+            cache.verifiedToken("t", t -> {
+                verifications.incrementAndGet();
+                return new AuthCache.VerifiedToken("tess", 1L, "ROLE_JUNIOR", 0L, soon);
+            });
+        }
+        assertThat(verifications).hasValue(1);
+
+        Thread.sleep(600);
+        cache.verifiedToken("t", t -> {
+            verifications.incrementAndGet();
+            return new AuthCache.VerifiedToken("tess", 1L, "ROLE_JUNIOR", 0L, System.currentTimeMillis() + 60_000);
+        });
+        assertThat(verifications).hasValue(2);
+    }
+
+    private static UserDetails user(String username, String role, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return User.withUsername(username).password("x").authorities(role).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("latch timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
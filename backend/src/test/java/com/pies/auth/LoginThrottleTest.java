@@ -0,0 +1,56 @@
+package com.pies.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Backoff, refunds and the bound on tracked keys.
+ */
+class LoginThrottleTest {
+
+    private static LoginThrottle throttle(int maxTrackedKeys) {
+        return new LoginThrottle(3, 50, Duration.ofSeconds(1), Duration.ofMinutes(15), Duration.ofHours(1),
+                maxTrackedKeys);
+    }
+
+    @Test
+    void usernameIsBackedOffAfterItsFreeAttempts() {
+        LoginThrottle t = throttle(1000);
+        for (int i = 0; i < 4; i++) {
+            assertThat(t.tryAcquire("tess", "10.0.0.1")).isZero();
+        }
+        assertThat(t.tryAcquire("tess", "10.0.0.1")).isPositive();
+        // Another account behind the same address is unaffected
+        assertThat(t.tryAcquire("sam", "10.0.0.1")).isZero();
+    }
+
+    @Test
+    void successAndUncheckedAttemptsAreGivenBack() {
+        LoginThrottle t = throttle(1000);
+        for (int i = 0; i < 3; i++) {
+            assertThat(t.tryAcquire("tess", "10.0.0.1")).isZero();
+        }
+        t.recordSuccess("tess", "10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            assertThat(t.tryAcquire("tess", "10.0.0.1")).isZero();
+            // e.g. a 429 from the verification pool: the password was never checked
+            t.release("tess", "10.0.0.1");
+        }
+        for (int i = 0; i < 4; i++) {
+            assertThat(t.tryAcquire("tess", "10.0.0.1")).isZero();
+        }
+        assertThat(t.tryAcquire("tess", "10.0.0.1")).isPositive();
+    }
+
+    @Test
+    void freshKeysDoNotGrowPastTheBound() {
+        LoginThrottle t = throttle(100);
+        for (int i = 0; i < 10_000; i++) {
+            t.tryAcquire("user" + i, "10.0.0." + (i % 200));
+        }
+        assertThat(t.trackedKeys()).isLessThanOrEqualTo(100);
+    }
+}
@@ -0,0 +1,171 @@
+package com.pies.auth;
+
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rotation, reuse, revocation racing rotation, and expiry by the sweeper.
+ */
+class RefreshTokenStoreTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RefreshTokenStore store;
+
+    @AfterEach
+    void shutdown() {
+        if (store != null) store.shutdown();
+    }
+
+    @Test
+    void rotationReplacesTheTokenAndRenewsTheExpiry() throws Exception {
+        store = store(Duration.ofMinutes(5));
+        RefreshTokenStore.Issued first = store.issue(therapist(1L));
+        Thread.sleep(5);
+
+        RefreshTokenStore.Issued second = store.rotate(first.token());
+        assertThat(second).isNotNull();
+        assertThat(second.token()).isNotEqualTo(first.token());
+        assertThat(second.session().therapistId()).isEqualTo(1L);
+        assertThat(second.session().username()).isEqualTo("tess");
+        assertThat(second.session().expiresAtMillis()).isGreaterThan(first.session().expiresAtMillis());
+        assertThat(sessions()).isEqualTo(1);
+    }
+
+    @Test
+    void rotatedTokenCannotBeReused() {
+        store = store(Duration.ofMinutes(5));
+        RefreshTokenStore.Issued first = store.issue(therapist(1L));
+        RefreshTokenStore.Issued second = store.rotate(first.token());
+
+        assertThat(store.rotate(first.token())).isNull();
+        // The replacement is unaffected by the failed reuse
+        assertThat(store.rotate(second.token())).isNotNull();
+        assertThat(store.rotate("never-issued")).isNull();
+    }
+
+    @Test
+    void concurrentRotationsOfOneTokenHaveOneWinner() throws Exception {
+        store = store(Duration.ofMinutes(5));
+        RefreshTokenStore.Issued issued = store.issue(therapist(1L));
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<RefreshTokenStore.Issued>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return store.rotate(issued.token());
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<RefreshTokenStore.Issued> f : results) {
+                if (f.get(5, TimeUnit.SECONDS) != null) winners++;
+            }
+            assertThat(winners).isEqualTo(1);
+            assertThat(sessions()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void revokeAllRacingRotationLeavesNoLiveToken() throws Exception {
+        store = store(Duration.ofMinutes(5));
+        int chains = 4;
+        for (int round = 0; round < 50; round++) {
+            List<String> tokens = new ArrayList<>();
+            for (int i = 0; i < chains; i++) {
+                tokens.add(store.issue(therapist(1L)).token());
+            }
+            store.issue(therapist(2L));
+            AtomicBoolean revoked = new AtomicBoolean();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(chains);
+            try {
+                // Each chain keeps rotating its latest token until a rotation fails
+                List<Future<String>> rotators = new ArrayList<>();
+                for (String token : tokens) {
+                    rotators.add(pool.submit(() -> {
+                        start.await();
+                        String current = token;
+                        while (true) {
+                            RefreshTokenStore.Issued next = store.rotate(current);
+                            if (next == null) return current;
+                            if (revoked.get()) return next.token();
+                            current = next.token();
+                        }
+                    }));
+                }
+                start.countDown();
+                store.revokeAll(1L);
+                revoked.set(true);
+                for (Future<String> f : rotators) {
+                    String last = f.get(5, TimeUnit.SECONDS);
+                    assertThat(store.rotate(last)).as("round %d", round).isNull();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            // Only the other therapist's token survives
+            assertThat(sessions()).as("round %d", round).isEqualTo(1);
+            store.revokeAll(2L);
+        }
+    }
+
+    @Test
+    void sweeperRemovesExpiredTokens() throws Exception {
+        store = store(Duration.ofMillis(100));
+        RefreshTokenStore.Issued issued = store.issue(therapist(1L));
+        assertThat(sessions()).isEqualTo(1);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sessions() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(sessions()).isZero();
+        assertThat(store.rotate(issued.token())).isNull();
+    }
+
+    @Test
+    void expiredTokenIsRefusedBeforeItIsSwept() throws Exception {
+        store = new RefreshTokenStore(registry, Duration.ofMillis(50), Duration.ofHours(1), 8);
+        RefreshTokenStore.Issued issued = store.issue(therapist(1L));
+        Thread.sleep(100);
+
+        assertThat(store.rotate(issued.token())).isNull();
+        assertThat(sessions()).isZero();
+    }
+
+    private RefreshTokenStore store(Duration ttl) {
+        return new RefreshTokenStore(registry, ttl, Duration.ofMillis(20), 16);
+    }
+
+    private double sessions() {
+        return registry.get("auth.refresh.sessions").gauge().value();
+    }
+
+    private static Therapist therapist(Long id) {
+        Therapist t = new Therapist();
+        t.setId(id);
+        t.setUsername(id == 1L ? "tess" : "other");
+        t.setRole(TherapistRole.JUNIOR);
+        return t;
+    }
+}
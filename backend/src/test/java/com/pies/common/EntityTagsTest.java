@@ -0,0 +1,105 @@
+package com.pies.common;
+
+import com.pies.patient.controller.PatientController;
+import com.pies.patient.model.Patient;
+import com.pies.patient.service.PatientChartService;
+import com.pies.patient.service.PatientPicker;
+import com.pies.patient.service.PatientService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional requests on a versioned record, through the patient endpoints:
+ * 304 for an unchanged GET, 428 for a PUT without {@code If-Match}, 412 for a
+ * stale or foreign tag.
+ */
+class EntityTagsTest {
+
+    private static final String BODY = "{\"firstName\":\"Pat\",\"lastName\":\"Ient\"}";
+
+    private final PatientService svc = mock(PatientService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(new PatientController(svc, mock(SparseQueries.class),
+                        mock(PatientChartService.class), mock(PatientPicker.class)))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void unchangedRecordIsNotModified() throws Exception {
+        when(svc.etag(1L)).thenReturn("1-4.2");
+
+        mvc.perform(get("/patients/1").header("If-None-Match", "\"1-4.2\""))
+                .andExpect(status().isNotModified());
+        verify(svc, never()).findById(anyLong());
+    }
+
+    @Test
+    void putWithoutIfMatchIsPreconditionRequired() throws Exception {
+        mvc.perform(put("/patients/1").contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isPreconditionRequired());
+        verify(svc, never()).updateFromRequest(anyLong(), any(), any());
+    }
+
+    @Test
+    void putWithStaleOrForeignTagIsPreconditionFailed() throws Exception {
+        // Someone saved version 4 after the client read version 3
+        when(svc.updateFromRequest(eq(1L), any(), eq(3L))).thenAnswer(inv -> {
+            EntityTags.checkVersion(3L, 4L);
+            return null;
+        });
+
+        mvc.perform(put("/patients/1").contentType(MediaType.APPLICATION_JSON).content(BODY)
+                        .header("If-Match", "\"1-3.2\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/patients/1").contentType(MediaType.APPLICATION_JSON).content(BODY)
+                        .header("If-Match", "\"2-4.2\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void putWithCurrentTagReturnsTheNewTag() throws Exception {
+        Patient saved = new Patient();
+        when(svc.updateFromRequest(eq(1L), any(), eq(4L))).thenReturn(saved);
+        when(svc.etag(saved)).thenReturn("1-5.2");
+
+        mvc.perform(put("/patients/1").contentType(MediaType.APPLICATION_JSON).content(BODY)
+                        .header("If-Match", "\"1-4.2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-5.2\""));
+    }
+
+    @Test
+    void requiredVersionParsing() {
+        assertThat(EntityTags.requiredVersion("\"7-12.3.0\"", 7L)).isEqualTo(12L);
+        assertThat(EntityTags.requiredVersion("*", 7L)).isNull();
+        assertThatThrownBy(() -> EntityTags.requiredVersion("W/\"7-12\"", 7L))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED));
+        assertThatThrownBy(() -> EntityTags.requiredVersion(null, 7L))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_REQUIRED));
+    }
+}
@@ -0,0 +1,145 @@
+package com.pies.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pies.patient.model.Patient;
+import com.pies.patient.repository.PatientRepository;
+import com.pies.therapist.model.Therapist;
+import com.pies.therapist.model.TherapistRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks {@code ?fields=} parsing and the page and keyset bookkeeping of
+ * {@link SparseQueries}, on the same H2 setup as {@code ListQueryStatementCountTest}.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(SparseQueries.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class SparseQueriesTest {
+
+    private static final int ROWS = 40;
+    private static final SparseFields FIELDS = PatientRepository.SPARSE;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private SparseQueries sparse;
+    @Autowired
+    private ObjectMapper mapper;
+
+    private final List<Long> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        Therapist t = new Therapist();
+        t.setFirstName("Tess");
+        t.setLastName("Rapist");
+        t.setUsername("therapist");
+        t.setRole(TherapistRole.JUNIOR);
+        em.persist(t);
+        for (int i = 0; i < ROWS; i++) {
+            Patient p = new Patient();
+            p.setFirstName("Pat" + i);
+            p.setLastName("Ient");
+            p.setTherapist(t);
+            em.persist(p);
+            patientIds.add(p.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void parseRejectsUnknownAndEmptyAndDropsRepeats() {
+        assertThatThrownBy(() -> FIELDS.parse("firstName,passwordHash"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("passwordHash");
+        assertThatThrownBy(() -> FIELDS.parse(" , ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FIELDS.parse(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(FIELDS.parse("lastName, firstName,lastName")).containsExactly("lastName", "firstName");
+    }
+
+    @Test
+    void pageSkipsTheCountWhenThePageSettlesTheTotal() throws IOException {
+        // Full page: the total is unknown, so it is counted
+        Statistics stats = statistics();
+        JsonNode full = page(0, 25);
+        assertThat(full.get("content")).hasSize(25);
+        assertThat(full.get("totalElements").asLong()).isEqualTo(ROWS);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+
+        // Short last page: offset plus rows is the total
+        stats = statistics();
+        JsonNode last = page(1, 25);
+        assertThat(last.get("content")).hasSize(ROWS - 25);
+        assertThat(last.get("totalElements").asLong()).isEqualTo(ROWS);
+        assertThat(last.get("last").asBoolean()).isTrue();
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+
+        // Past the end: no rows say nothing about the total, so it is counted
+        stats = statistics();
+        JsonNode past = page(5, 25);
+        assertThat(past.get("content")).isEmpty();
+        assertThat(past.get("totalElements").asLong()).isEqualTo(ROWS);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void sliceCursorResumesAfterTheLastRow() throws IOException {
+        JsonNode first = slice(null, 25);
+        assertThat(first.get("content")).hasSize(25);
+        assertThat(first.get("hasNext").asBoolean()).isTrue();
+        String cursor = first.get("nextCursor").asText();
+        assertThat(Keyset.afterId(cursor)).isEqualTo(patientIds.get(24));
+
+        JsonNode second = slice(cursor, 25);
+        assertThat(second.get("content")).hasSize(ROWS - 25);
+        assertThat(second.get("content").get(0).get("id").asLong()).isEqualTo(patientIds.get(25));
+        assertThat(second.get("hasNext").asBoolean()).isFalse();
+        assertThat(second.get("nextCursor").isNull()).isTrue();
+    }
+
+    private JsonNode page(int page, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sparse.writePage(FIELDS, "id,firstName", SparseQueries.Filter.ALL, PageRequest.of(page, size), out);
+        return mapper.readTree(out.toByteArray());
+    }
+
+    private JsonNode slice(String after, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sparse.writeSlice(FIELDS, "id,firstName", SparseQueries.Filter.ALL, after, size, out);
+        return mapper.readTree(out.toByteArray());
+    }
+
+    private Statistics statistics() {
+        em.clear();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+}
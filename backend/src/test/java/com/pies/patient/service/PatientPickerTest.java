@@ -0,0 +1,104 @@
+package com.pies.patient.service;
+
+import com.pies.patient.payload.PatientOption;
+import com.pies.patient.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prefix lookup over the sorted "first last" / "last first" keys, and the
+ * entity tag following the generation counter.
+ */
+class PatientPickerTest {
+
+    private final PatientRepository repo = mock(PatientRepository.class);
+
+    @Test
+    void matchesEitherNameOrder() {
+        PatientPicker.Snapshot s = picker(false).snapshot();
+
+        assertThat(ids(s.find("lind", 10))).containsExactly(1L);
+        assertThat(ids(s.find("berg", 10))).containsExactly(3L, 2L);
+        assertThat(ids(s.find("Ann  Berg", 10))).containsExactly(3L);
+        assertThat(ids(s.find("berg ann", 10))).containsExactly(3L);
+        assertThat(ids(s.find("  cLARA ", 10))).containsExactly(2L);
+        assertThat(s.find("zed", 10)).isEmpty();
+    }
+
+    @Test
+    void patientMatchedByBothKeysIsListedOnce() {
+        PatientPicker.Snapshot s = picker(false).snapshot();
+
+        // Both "anna annis" and "annis anna" start with "ann"
+        assertThat(ids(s.find("ann", 10))).containsExactly(3L, 1L, 5L);
+        assertThat(ids(s.find("annis", 10))).containsExactly(5L);
+        assertThat(ids(s.find("an", 2))).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void blankPrefixListsPatientsByLastName() {
+        PatientPicker.Snapshot s = picker(false).snapshot();
+
+        assertThat(s.find("", 10)).extracting(PatientOption::name)
+                .containsExactly("Anna Annis", "Ann Berg", "Clara Berg", "Ann Lind", "Nils Svensson");
+        assertThat(s.find("   ", 2)).extracting(PatientOption::name).containsExactly("Anna Annis", "Ann Berg");
+        assertThat(s.find(null, 10)).hasSize(5);
+    }
+
+    @Test
+    void generationBumpReplacesTheTagAndTheList() {
+        PatientPicker picker = picker(false);
+        PatientPicker.Snapshot first = picker.snapshot();
+        assertThat(picker.snapshot()).isSameAs(first);
+        verify(repo, times(1)).findPickerRows();
+
+        List<Object[]> rows = new ArrayList<>(rows());
+        rows.add(new Object[]{6L, "Olle", "Berg", null});
+        when(repo.findPickerRows()).thenReturn(rows);
+        picker.patientsChanged();
+
+        PatientPicker.Snapshot second = picker.snapshot();
+        assertThat(second.etag()).isNotEqualTo(first.etag());
+        assertThat(ids(second.find("berg", 10))).containsExactly(3L, 2L, 6L);
+        // Held snapshots keep answering from the list they were built from
+        assertThat(ids(first.find("berg", 10))).containsExactly(3L, 2L);
+        verify(repo, times(2)).findPickerRows();
+    }
+
+    @Test
+    void clusterModeTagsByContent() {
+        PatientPicker picker = picker(true);
+        String tag = picker.snapshot().etag();
+        assertThat(picker.snapshot().etag()).isEqualTo(tag);
+
+        when(repo.findPickerRows()).thenReturn(List.<Object[]>of(new Object[]{1L, "Ann", "Lind", null}));
+        assertThat(picker.snapshot().etag()).isNotEqualTo(tag);
+    }
+
+    private PatientPicker picker(boolean cluster) {
+        when(repo.findPickerRows()).thenReturn(rows());
+        return new PatientPicker(repo, cluster);
+    }
+
+    private static List<Object[]> rows() {
+        return List.of(
+                new Object[]{1L, "Ann", "Lind", LocalDate.of(1980, 1, 2)},
+                new Object[]{2L, "Clara", "Berg", null},
+                new Object[]{3L, "Ann", "Berg", null},
+                new Object[]{4L, " Nils ", "Svensson", null},
+                new Object[]{5L, "Anna", "Annis", null});
+    }
+
+    private static List<Long> ids(List<PatientOption> options) {
+        return options.stream().map(PatientOption::id).toList();
+    }
+}
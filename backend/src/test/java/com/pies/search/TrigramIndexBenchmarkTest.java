@@ -0,0 +1,139 @@
+package com.pies.search;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ranked search against a linear {@code like '%q%'} scan over the same
+ * 200,000 synthetic patients. The scan stands in for the database query, which
+ * cannot use an index for a leading wildcard.
+ */
+class TrigramIndexBenchmarkTest {
+
+    private static final int PATIENTS = 200_000;
+    private static final String[] FIRST = {"James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael",
+            "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas",
+            "Sarah", "Charles", "Karen", "Catherine", "Stephen", "Steven", "Kristin", "Christine"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas",
+            "Taylor", "Moore", "Jackson", "Martin", "Lee", "Thompson", "White", "Harris", "Clark", "Lewis"};
+    private static final String[] SYLLABLES = {"ka", "ro", "mi", "lan", "der", "bel", "so", "tor", "vin", "ha",
+            "nu", "pel", "gar", "ri", "ste", "wel", "do", "ma", "quin", "zu", "fer", "li", "bra", "cho", "ten"};
+
+    // Misspelled query -> the name it should rank first
+    private static final Map<String, String> MISSPELLED = Map.of(
+            "Jonson", "johnson", "Wiliams", "williams", "Ghonzales", "gonzalez",
+            "Thompsen", "thompson", "Stephan", "stephen");
+
+    private static TrigramIndex index;
+    private static List<String[]> rows;
+
+    @BeforeAll
+    static void load() {
+        Random rnd = new Random(42);
+        index = new TrigramIndex(true);
+        rows = new ArrayList<>(PATIENTS);
+        for (long id = 1; id <= PATIENTS; id++) {
+            // A few common names and a long tail of rare ones, as in a real patient table
+            String first = rnd.nextInt(10) == 0 ? FIRST[rnd.nextInt(FIRST.length)] : syllables(rnd, 2);
+            String last = rnd.nextInt(10) == 0 ? LAST[rnd.nextInt(LAST.length)] : syllables(rnd, 3);
+            index.put(id, first, last, true);
+            rows.add(new String[]{first.toLowerCase(Locale.ROOT), last.toLowerCase(Locale.ROOT)});
+        }
+        index.put(PATIENTS + 1L, "Ada", "Johnson", true);
+        rows.add(new String[]{"ada", "johnson"});
+    }
+
+    @Test
+    void misspelledNameFindsJohnson() {
+        assertThat(likeScan("jonson", Integer.MAX_VALUE)).isEmpty();
+
+        List<TrigramIndex.Hit> hits = index.rank("Ada Jonson", 10, 0.3);
+        assertThat(hits).isNotEmpty();
+        assertThat(hits.get(0).id()).isEqualTo(PATIENTS + 1L);
+    }
+
+    @Test
+    void phoneticKeysMatchSpellingVariants() {
+        List<TrigramIndex.Hit> hits = index.rank("Kathryn", 20, 0.3);
+        assertThat(hits).isNotEmpty();
+        assertThat(hits).anySatisfy(h -> assertThat(index.get(h.id()).first()).isEqualTo("catherine"));
+    }
+
+    @Test
+    void substringSearchMatchesLikeScan() {
+        for (String q : List.of("ohns", "tin", "ez", "williams")) {
+            assertThat(index.search(q, true, Integer.MAX_VALUE)).isEqualTo(likeScan(q, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void misspelledNamesRankTheIntendedNameFirst() {
+        MISSPELLED.forEach((q, name) -> assertTopHit(q, name));
+    }
+
+    /**
+     * Opt-in timing run: {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmarkAgainstLikeScan() {
+        List<String> queries = List.copyOf(MISSPELLED.keySet());
+        int rounds = 50;
+        // Warm-up
+        for (String q : queries) {
+            index.rank(q, 20, 0.3);
+            likeScan(q.toLowerCase(Locale.ROOT), 20);
+        }
+
+        long scan = 0;
+        long ranked = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String q : queries) {
+                long t0 = System.nanoTime();
+                likeScan(q.toLowerCase(Locale.ROOT), 20);
+                long t1 = System.nanoTime();
+                List<TrigramIndex.Hit> hits = index.rank(q, 20, 0.3);
+                long t2 = System.nanoTime();
+                assertThat(hits).hasSizeLessThanOrEqualTo(20);
+                scan += t1 - t0;
+                ranked += t2 - t1;
+            }
+        }
+        int n = rounds * queries.size();
+        System.out.printf("%d patients: like scan %.1f us/query, ranked top-20 %.1f us/query%n",
+                PATIENTS, scan / 1000.0 / n, ranked / 1000.0 / n);
+        MISSPELLED.forEach((q, name) -> assertTopHit(q, name));
+    }
+
+    private static void assertTopHit(String query, String name) {
+        List<TrigramIndex.Hit> hits = index.rank(query, 20, 0.3);
+        assertThat(hits).as(query).isNotEmpty();
+        TrigramIndex.Entry top = index.get(hits.get(0).id());
+        assertThat(List.of(top.first(), top.last())).as(query).contains(name);
+    }
+
+    private static String syllables(Random rnd, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(SYLLABLES[rnd.nextInt(SYLLABLES.length)]);
+        return Character.toUpperCase(sb.charAt(0)) + sb.substring(1);
+    }
+
+    private static List<Long> likeScan(String q, int limit) {
+        List<Long> out = new ArrayList<>();
+        for (int i = 0; i < rows.size() && out.size() < limit; i++) {
+            String[] row = rows.get(i);
+            if (row[0].contains(q) || row[1].contains(q)) out.add(i + 1L);
+        }
+        return out;
+    }
+}
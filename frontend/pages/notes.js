@@ -62,11 +62,11 @@ export default function TherapistNotesPage() {
 
                 const normalize = (arr, typeKey) =>
                     (arr?.content ?? []).map((row) => {
-                        const patient = row.patient || row.client || row.patientDto || {};
-                        const patientName = `${patient.firstName ?? ""} ${patient.lastName ?? ""}`.trim();
+                        const patientName = (row.patientName ?? "").trim();
 
                         const dateStr =
                             row.dateSubmitted ||
+                            row.dateOfSession ||
                             row.date ||
                             row.intakeDate ||
                             row.createdAt ||
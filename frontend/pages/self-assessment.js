@@ -43,15 +43,15 @@ export function SelfAssessmentPage() {
         if (!token) return;
         (async () => {
             try {
-                const res = await fetch("http://localhost:8080/patients?page=0&size=500", {
+                const res = await fetch("http://localhost:8080/patients/picker?limit=2000", {
                     headers: {Authorization: `Bearer ${token}`},
                 });
                 if (!res.ok) throw new Error("Failed to load patients");
-                const page = await res.json();
+                const options = await res.json();
                 setPatients(
-                    page.content.map((p) => ({
+                    options.map((p) => ({
                         id: p.id,
-                        name: `${p.firstName} ${p.lastName}`.trim(),
+                        name: p.name,
                         dob: p.dateOfBirth,
                     }))
                 );